@@ -0,0 +1,29 @@
+#!/bin/bash
+# Runs the job once with each executor type (same input, same step threads) and prints the duration of the steps.
+# The durations are taken from the log of each run ("Step: [...] executed in ..."), so any database reachable by the
+# application works, without a client for it on this host.
+# usage: scripts/compare-executors.sh input/billing-2023-01.csv 2023 1 [extra --spring.* properties]
+# TYPES="PLATFORM" scripts/compare-executors.sh ... runs a subset (VIRTUAL requires Java 21)
+set -e
+
+INPUT_FILE=$1
+YEAR=$2
+MONTH=$3
+shift 3
+TYPES=${TYPES:-"PLATFORM VIRTUAL"}
+
+./mvnw -q package -Dmaven.test.skip=true
+
+for TYPE in $TYPES; do
+  LOG_FILE=target/compare-executors-$TYPE.log
+  java -jar target/billing-job-0.0.1-SNAPSHOT.jar \
+    --spring.cellular.executor.type=$TYPE "$@" \
+    input.file=$INPUT_FILE output.file=staging/report-$TYPE.csv skip.file=staging/skipped-$TYPE.psv \
+    data.year=$YEAR,java.lang.Integer data.month=$MONTH,java.lang.Integer run.id=$(date +%s%N),java.lang.Long \
+    > "$LOG_FILE" 2>&1
+
+  echo "== $TYPE ($LOG_FILE)"
+  grep -o 'Step: \[[^]]*\] executed in .*' "$LOG_FILE" || echo "no step executed, see $LOG_FILE"
+  grep -o 'Job: \[.*\] completed .* and the following status: \[[A-Z]*\] in .*' "$LOG_FILE" \
+    | sed 's/ with the following parameters: \[.*\] and the following status:/:/'
+done
@@ -0,0 +1,46 @@
+package br.com.gabezy.billingjob.benchmarks;
+
+import br.com.gabezy.billingjob.config.BillingJobConfig;
+import org.springframework.beans.SimpleTypeConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.util.ReflectionUtils;
+
+import java.util.UUID;
+
+final class Benchmarks {
+
+    private Benchmarks() {
+    }
+
+    // the bean methods that don't depend on injected beans build the same components used by the job. The
+    // ${spring.cellular...} fields are resolved like in the application: the default of the placeholder, or the
+    // system property with the same name (-Dspring.cellular.ingestion.reader=mapped)
+    static BillingJobConfig config() {
+        BillingJobConfig config = new BillingJobConfig();
+        StandardEnvironment environment = new StandardEnvironment();
+        SimpleTypeConverter converter = new SimpleTypeConverter();
+        converter.setConversionService(ApplicationConversionService.getSharedInstance());
+        ReflectionUtils.doWithFields(BillingJobConfig.class, field -> {
+            String value = environment.resolveRequiredPlaceholders(field.getAnnotation(Value.class).value());
+            ReflectionUtils.makeAccessible(field);
+            ReflectionUtils.setField(field, config, converter.convertIfNecessary(value, field.getType(),
+                    new TypeDescriptor(field)));
+        }, field -> field.isAnnotationPresent(Value.class));
+        return config;
+    }
+
+    // in memory H2 database with the BILLING_DATA table
+    static EmbeddedDatabase billingDatabase() {
+        return new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .setName("billing-" + UUID.randomUUID())
+                .addScript("classpath:schema-billing.sql")
+                .build();
+    }
+}
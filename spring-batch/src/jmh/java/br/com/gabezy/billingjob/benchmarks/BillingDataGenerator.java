@@ -0,0 +1,80 @@
+package br.com.gabezy.billingjob.benchmarks;
+
+import br.com.gabezy.billingjob.domain.BillingData;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/*
+ * Synthetic billing data, with the same shape of the files in the input directory. The data only depends on the
+ * number of rows (the seed is fixed), so the numbers of different runs can be compared.
+ *
+ * Can also be used to create bigger input files for the job:
+ * java -cp <test classpath> br.com.gabezy.billingjob.benchmarks.BillingDataGenerator 10000000 input/billing-2023-05.csv
+ */
+public final class BillingDataGenerator {
+
+    private static final long SEED = 42;
+    private static final Path DATA_DIRECTORY = Paths.get("target", "benchmark-data");
+
+    private BillingDataGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int rows = Integer.parseInt(args[0]);
+        Path file = Paths.get(args[1]);
+        write(file, rows);
+        System.out.println("Generated " + rows + " rows in " + file);
+    }
+
+    public static List<BillingData> items(int rows) {
+        Random random = new Random(SEED);
+        List<BillingData> items = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            items.add(next(random, i));
+        }
+        return items;
+    }
+
+    // generated once per number of rows and reused by the next benchmarks
+    public static Path file(int rows) {
+        Path file = DATA_DIRECTORY.resolve("billing-" + rows + ".csv");
+        if (!Files.exists(file)) {
+            try {
+                Files.createDirectories(DATA_DIRECTORY);
+                Path temporary = Files.createTempFile(DATA_DIRECTORY, "billing-", ".tmp");
+                write(temporary, rows);
+                Files.move(temporary, file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return file;
+    }
+
+    public static void write(Path file, int rows) throws IOException {
+        Random random = new Random(SEED);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < rows; i++) {
+                BillingData item = next(random, i);
+                writer.write(String.format(Locale.ROOT, "%d,%02d,%d,%s,%.2f,%d,%d\n", item.dataYear(), item.dataMonth(),
+                        item.accountId(), item.phoneNumber(), item.dataUsage(), item.callDuration(), item.smsCount()));
+            }
+        }
+    }
+
+    private static BillingData next(Random random, int row) {
+        int accountId = 100 + row;
+        return new BillingData(2023, 1, accountId, String.format("404-555-%04d", accountId % 10_000),
+                random.nextInt(10_000) / 100f, random.nextInt(1_000), random.nextInt(1_000));
+    }
+}
@@ -0,0 +1,121 @@
+package br.com.gabezy.billingjob.benchmarks;
+
+import br.com.gabezy.billingjob.compression.Compression;
+import br.com.gabezy.billingjob.domain.BillingData;
+import br.com.gabezy.billingjob.readers.MappedBillingDataFileReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.file.builder.FlatFileItemReaderBuilder;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Reads a whole synthetic file per operation with the readers available for the fileIngestion step:
+ * - delimitedFlatFile: FlatFileItemReader with .delimited().names(...).targetType(...) (the original reader)
+ * - flatFile: FlatFileItemReader with the BillingDataLineMapper (billingDataFileReader)
+ * - mapped: MappedBillingDataFileReader (billingDataFileReader with spring.cellular.ingestion.reader=mapped)
+ * - gzipFlatFile / zstdFlatFile: billingDataFileReader decompressing a .gz / .zst copy of the file on the fly
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FileReaderBenchmark {
+
+    @Param({"1000", "100000", "10000000"})
+    private int rows;
+
+    private String inputFile;
+    private String gzipFile;
+    private String zstdFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        Path file = BillingDataGenerator.file(rows);
+        inputFile = file.toString();
+        gzipFile = compressedCopy(file, Compression.GZIP, ".gz");
+        zstdFile = compressedCopy(file, Compression.ZSTD, ".zst");
+    }
+
+    @Benchmark
+    public long delimitedFlatFile(Blackhole blackhole) throws Exception {
+        return readAll(new FlatFileItemReaderBuilder<BillingData>()
+                .name("delimitedReader")
+                .resource(new FileSystemResource(inputFile))
+                .delimited()
+                .names("dataYear", "dataMonth", "accountId", "phoneNumber", "dataUsage", "callDuration", "smsCount")
+                .targetType(BillingData.class)
+                .build(), blackhole);
+    }
+
+    @Benchmark
+    public long flatFile(Blackhole blackhole) throws Exception {
+        return readAll(Benchmarks.config().billingDataFileReader(inputFile, null), blackhole);
+    }
+
+    @Benchmark
+    public long gzipFlatFile(Blackhole blackhole) throws Exception {
+        return readAll(Benchmarks.config().billingDataFileReader(gzipFile, null), blackhole);
+    }
+
+    @Benchmark
+    public long zstdFlatFile(Blackhole blackhole) throws Exception {
+        return readAll(Benchmarks.config().billingDataFileReader(zstdFile, null), blackhole);
+    }
+
+    @Benchmark
+    public long mapped(Blackhole blackhole) throws Exception {
+        return readAll(new MappedBillingDataFileReader("mappedReader", inputFile), blackhole);
+    }
+
+    // compressed in blocks of 1 MB, like the blocks written by the CompressedFileItemWriter
+    private static String compressedCopy(Path file, Compression compression, String extension) throws IOException {
+        Path copy = file.resolveSibling(file.getFileName() + extension);
+        if (Files.exists(copy)) {
+            return copy.toString();
+        }
+        byte[] block = new byte[1024 * 1024];
+        try (InputStream in = Files.newInputStream(file); OutputStream out = Files.newOutputStream(copy)) {
+            int length;
+            while ((length = in.readNBytes(block, 0, block.length)) > 0) {
+                out.write(compression.compress(block, length));
+            }
+        }
+        return copy.toString();
+    }
+
+    private long readAll(ItemStreamReader<BillingData> reader, Blackhole blackhole) throws Exception {
+        long count = 0;
+        reader.open(new ExecutionContext());
+        try {
+            BillingData item;
+            while ((item = reader.read()) != null) {
+                blackhole.consume(item);
+                count++;
+            }
+        } finally {
+            reader.close();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,63 @@
+package br.com.gabezy.billingjob.benchmarks;
+
+import br.com.gabezy.billingjob.domain.BillingData;
+import br.com.gabezy.billingjob.mappers.BillingDataLineMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.batch.item.file.mapping.DefaultLineMapper;
+import org.springframework.batch.item.file.mapping.RecordFieldSetMapper;
+import org.springframework.batch.item.file.transform.DelimitedLineTokenizer;
+
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// mapping of 1000 lines: delimited() tokenizer + record mapper (the original configuration) vs BillingDataLineMapper
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LineMappingBenchmark {
+
+    private List<String> lines;
+    private DefaultLineMapper<BillingData> delimitedLineMapper;
+    private BillingDataLineMapper billingDataLineMapper;
+
+    @Setup
+    public void setUp() throws Exception {
+        lines = Files.readAllLines(BillingDataGenerator.file(1000));
+
+        DelimitedLineTokenizer tokenizer = new DelimitedLineTokenizer();
+        tokenizer.setNames("dataYear", "dataMonth", "accountId", "phoneNumber", "dataUsage", "callDuration", "smsCount");
+        delimitedLineMapper = new DefaultLineMapper<>();
+        delimitedLineMapper.setLineTokenizer(tokenizer);
+        delimitedLineMapper.setFieldSetMapper(new RecordFieldSetMapper<>(BillingData.class));
+
+        billingDataLineMapper = new BillingDataLineMapper();
+    }
+
+    @Benchmark
+    public void delimitedLineMapper(Blackhole blackhole) throws Exception {
+        for (int i = 0; i < lines.size(); i++) {
+            blackhole.consume(delimitedLineMapper.mapLine(lines.get(i), i + 1));
+        }
+    }
+
+    @Benchmark
+    public void billingDataLineMapper(Blackhole blackhole) {
+        for (int i = 0; i < lines.size(); i++) {
+            blackhole.consume(billingDataLineMapper.mapLine(lines.get(i), i + 1));
+        }
+    }
+}
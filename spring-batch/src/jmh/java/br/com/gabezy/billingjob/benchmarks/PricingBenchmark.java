@@ -0,0 +1,93 @@
+package br.com.gabezy.billingjob.benchmarks;
+
+import br.com.gabezy.billingjob.domain.BillingData;
+import br.com.gabezy.billingjob.domain.RateCard;
+import br.com.gabezy.billingjob.domain.ReportingData;
+import br.com.gabezy.billingjob.processors.BillingDataChunkPricer;
+import br.com.gabezy.billingjob.processors.BillingDataProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// per item BillingDataProcessor vs chunk oriented BillingDataChunkPricer, pricing one chunk per invocation
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PricingBenchmark {
+
+    private static final RateCard RATE_CARD = new RateCard(0.01f, 0.5f, 0.1f);
+    private static final float SPENDING_THRESHOLD = 150;
+
+    @Param({"100", "1000", "10000"})
+    private int chunkSize;
+
+    private List<BillingData> chunk;
+    private BillingDataProcessor processor;
+    private BillingDataChunkPricer chunkPricer;
+    private float[] dataUsage;
+    private int[] callDuration;
+    private int[] smsCount;
+    private float[] totals;
+    private int[] reportable;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        chunk = new ArrayList<>(chunkSize);
+        for (int i = 0; i < chunkSize; i++) {
+            chunk.add(new BillingData(2023, 1, 100 + i, "404-555-" + (1000 + i),
+                    random.nextInt(10_000) / 100f, random.nextInt(1000), random.nextInt(1000)));
+        }
+        processor = new BillingDataProcessor(RATE_CARD, SPENDING_THRESHOLD);
+        chunkPricer = new BillingDataChunkPricer(RATE_CARD, SPENDING_THRESHOLD);
+
+        dataUsage = new float[chunkSize];
+        callDuration = new int[chunkSize];
+        smsCount = new int[chunkSize];
+        totals = new float[chunkSize];
+        reportable = new int[chunkSize];
+        for (int i = 0; i < chunkSize; i++) {
+            dataUsage[i] = chunk.get(i).dataUsage();
+            callDuration[i] = chunk.get(i).callDuration();
+            smsCount[i] = chunk.get(i).smsCount();
+        }
+    }
+
+    @Benchmark
+    public void itemProcessor(Blackhole blackhole) {
+        for (BillingData item : chunk) {
+            ReportingData reportingData = processor.process(item);
+            if (reportingData != null) {
+                blackhole.consume(reportingData);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<ReportingData> chunkPricer() {
+        return chunkPricer.price(chunk);
+    }
+
+    // only the primitive loop of the chunk pricer, without copying the columns nor creating the ReportingData
+    @Benchmark
+    public int chunkPricerTotalsOnly() {
+        return chunkPricer.computeTotals(dataUsage, callDuration, smsCount, totals, reportable);
+    }
+}
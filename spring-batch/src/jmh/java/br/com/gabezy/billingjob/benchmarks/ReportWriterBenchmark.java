@@ -0,0 +1,75 @@
+package br.com.gabezy.billingjob.benchmarks;
+
+import br.com.gabezy.billingjob.domain.RateCard;
+import br.com.gabezy.billingjob.domain.ReportingData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamWriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// billingDataFileWriter formatting (and compressing) and writing one chunk of ReportingData per operation
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportWriterBenchmark {
+
+    private static final RateCard RATE_CARD = new RateCard(0.01f, 0.5f, 0.1f);
+
+    @Param({"100", "1000", "10000"})
+    private int chunkSize;
+
+    // plain FlatFileItemWriter, a chunk per gzip member / zstd frame (chosen by the extension), or a chunk per
+    // columnar row group
+    @Param({"csv", "csv.gz", "csv.zst", "columnar"})
+    private String format;
+
+    private Path outputFile;
+    private ItemStreamWriter<ReportingData> writer;
+    private Chunk<ReportingData> chunk;
+
+    @Setup
+    public void setUp() {
+        chunk = new Chunk<>(BillingDataGenerator.items(chunkSize).stream()
+                .map(item -> new ReportingData(item, RATE_CARD.billingTotal(item)))
+                .toList());
+    }
+
+    // a new report per iteration, so the file doesn't grow for the whole benchmark
+    @Setup(Level.Iteration)
+    public void openWriter() throws IOException {
+        outputFile = Files.createTempFile("billing-report-", "." + format);
+        writer = Benchmarks.config().billingDataFileWriter(outputFile.toString(), null, format);
+        writer.open(new ExecutionContext());
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeWriter() throws IOException {
+        writer.close();
+        Files.deleteIfExists(outputFile);
+    }
+
+    @Benchmark
+    public void reportFileWriter() throws Exception {
+        writer.write(chunk);
+    }
+}
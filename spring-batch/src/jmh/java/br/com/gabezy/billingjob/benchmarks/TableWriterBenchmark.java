@@ -0,0 +1,64 @@
+package br.com.gabezy.billingjob.benchmarks;
+
+import br.com.gabezy.billingjob.domain.BillingData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.database.JdbcBatchItemWriter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+
+import java.util.concurrent.TimeUnit;
+
+// billingDataTableWriter writing one chunk per operation in an embedded (H2) database
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TableWriterBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    private int chunkSize;
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private JdbcBatchItemWriter<BillingData> writer;
+    private Chunk<BillingData> chunk;
+
+    @Setup
+    public void setUp() {
+        database = Benchmarks.billingDatabase();
+        jdbcTemplate = new JdbcTemplate(database);
+        writer = Benchmarks.config().billingDataTableWriter(database);
+        writer.afterPropertiesSet();
+        chunk = new Chunk<>(BillingDataGenerator.items(chunkSize));
+    }
+
+    @Setup(Level.Iteration)
+    public void cleanTable() {
+        jdbcTemplate.update("TRUNCATE TABLE BILLING_DATA");
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Benchmark
+    public void jdbcBatchWriter() throws Exception {
+        writer.write(chunk);
+    }
+}
@@ -0,0 +1,225 @@
+package br.com.gabezy.billingjob.aggregators;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/*
+ * Totals of the month by ACCOUNT_ID in an open addressing hash map (linear probing) of primitive arrays: the account
+ * ids are the int keys and the totals are kept in parallel arrays, so there is no boxed key and no object per
+ * account. The map grows up to maxAccounts, then the caller spills it (forEachSorted) and clears it. The table never
+ * grows past the capacity of maxAccounts, so the memory used is bounded by maxAccounts (see maxAccounts(budget)).
+ *
+ * The totals of an account are also the record of the spill runs and of the merge, see write / Cursor.
+ */
+public class AccountTotals {
+
+    // bytes of one slot: key, used flag and the five totals
+    public static final int SLOT_BYTES = Integer.BYTES + 1 + 5 * Long.BYTES;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int maxAccounts;
+    private final int maxCapacity;
+
+    private int[] accountIds;
+    private boolean[] used;
+    private long[] lines;
+    private double[] dataUsage;
+    private long[] callDuration;
+    private long[] smsCount;
+    private double[] billingTotal;
+    private int size;
+    private int mask;
+
+    public AccountTotals(int maxAccounts) {
+        if (maxAccounts < 1) {
+            throw new IllegalArgumentException("Invalid max accounts: " + maxAccounts);
+        }
+        this.maxAccounts = maxAccounts;
+        this.maxCapacity = capacity(maxAccounts);
+        allocate(Math.min(INITIAL_CAPACITY, maxCapacity));
+    }
+
+    /*
+     * Accounts that fit in the memory budget in the worst case: the largest table (a power of two, with a load factor
+     * of 0.5) while the previous table, half its size, is copied into it. The table is rounded down to a power of
+     * two, so an account costs between 3 and 6 slots of the budget.
+     */
+    public static int maxAccounts(long memoryBudget) {
+        long capacity = Long.highestOneBit(Math.max(2, memoryBudget * 2 / (3L * SLOT_BYTES)));
+        return (int) Math.min(1 << 28, Math.max(1, capacity / 2));
+    }
+
+    // table of maxAccounts at a load factor of 0.5
+    private static int capacity(int maxAccounts) {
+        return Integer.highestOneBit(Math.max(1, maxAccounts - 1)) << 2;
+    }
+
+    public void add(int accountId, float dataUsage, int callDuration, int smsCount, double billingTotal) {
+        int slot = slot(accountId);
+        if (!used[slot]) {
+            if (size >= maxAccounts) {
+                throw new IllegalStateException("The totals of " + maxAccounts + " accounts must be spilled first");
+            }
+            used[slot] = true;
+            accountIds[slot] = accountId;
+            this.lines[slot] = 0;
+            this.dataUsage[slot] = 0;
+            this.callDuration[slot] = 0;
+            this.smsCount[slot] = 0;
+            this.billingTotal[slot] = 0;
+            size++;
+        }
+        this.lines[slot]++;
+        this.dataUsage[slot] += dataUsage;
+        this.callDuration[slot] += callDuration;
+        this.smsCount[slot] += smsCount;
+        this.billingTotal[slot] += billingTotal;
+        if (size * 2 > accountIds.length && accountIds.length < maxCapacity) {
+            allocate(accountIds.length * 2);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size >= maxAccounts;
+    }
+
+    // keeps the arrays, the totals of a slot are reset when it is used again
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    // the accounts ordered by ACCOUNT_ID, e.g. to write a spill run
+    public void forEachSorted(AccountConsumer consumer) throws IOException {
+        // (account id, slot) packed in a long: sorting the longs sorts the accounts
+        long[] order = new long[size];
+        int count = 0;
+        for (int slot = 0; slot < accountIds.length; slot++) {
+            if (used[slot]) {
+                order[count++] = ((long) accountIds[slot] << 32) | slot;
+            }
+        }
+        Arrays.sort(order);
+        for (long entry : order) {
+            int slot = (int) entry;
+            consumer.accept(accountIds[slot], lines[slot], dataUsage[slot], callDuration[slot], smsCount[slot],
+                    billingTotal[slot]);
+        }
+    }
+
+    // record of the spill runs, read back by the Cursor
+    public static void write(DataOutput output, int accountId, long lines, double dataUsage, long callDuration,
+                             long smsCount, double billingTotal) throws IOException {
+        output.writeInt(accountId);
+        output.writeLong(lines);
+        output.writeDouble(dataUsage);
+        output.writeLong(callDuration);
+        output.writeLong(smsCount);
+        output.writeDouble(billingTotal);
+    }
+
+    private int slot(int accountId) {
+        int slot = mix(accountId) & mask;
+        while (used[slot] && accountIds[slot] != accountId) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    // the account ids are sequential, the murmur3 finalizer spreads them over the table
+    private static int mix(int key) {
+        int hash = key;
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    private void allocate(int capacity) {
+        int[] oldAccountIds = accountIds;
+        boolean[] oldUsed = used;
+        long[] oldLines = lines;
+        double[] oldDataUsage = dataUsage;
+        long[] oldCallDuration = callDuration;
+        long[] oldSmsCount = smsCount;
+        double[] oldBillingTotal = billingTotal;
+
+        accountIds = new int[capacity];
+        used = new boolean[capacity];
+        lines = new long[capacity];
+        dataUsage = new double[capacity];
+        callDuration = new long[capacity];
+        smsCount = new long[capacity];
+        billingTotal = new double[capacity];
+        mask = capacity - 1;
+
+        if (oldUsed == null) {
+            return;
+        }
+        for (int oldSlot = 0; oldSlot < oldUsed.length; oldSlot++) {
+            if (oldUsed[oldSlot]) {
+                int slot = slot(oldAccountIds[oldSlot]);
+                used[slot] = true;
+                accountIds[slot] = oldAccountIds[oldSlot];
+                lines[slot] = oldLines[oldSlot];
+                dataUsage[slot] = oldDataUsage[oldSlot];
+                callDuration[slot] = oldCallDuration[oldSlot];
+                smsCount[slot] = oldSmsCount[oldSlot];
+                billingTotal[slot] = oldBillingTotal[oldSlot];
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface AccountConsumer {
+
+        void accept(int accountId, long lines, double dataUsage, long callDuration, long smsCount,
+                    double billingTotal) throws IOException;
+    }
+
+    /*
+     * Cursor over a sorted run: the fields of the current account are kept in primitive fields, so reading and merging
+     * the runs doesn't create an object per account either.
+     */
+    public static class Cursor {
+
+        private final DataInput input;
+        private long remaining;
+
+        public int accountId;
+        public long lines;
+        public double dataUsage;
+        public long callDuration;
+        public long smsCount;
+        public double billingTotal;
+
+        public Cursor(DataInput input, long accounts) {
+            this.input = input;
+            this.remaining = accounts;
+        }
+
+        // false at the end of the run
+        public boolean next() throws IOException {
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            accountId = input.readInt();
+            lines = input.readLong();
+            dataUsage = input.readDouble();
+            callDuration = input.readLong();
+            smsCount = input.readLong();
+            billingTotal = input.readDouble();
+            return true;
+        }
+    }
+}
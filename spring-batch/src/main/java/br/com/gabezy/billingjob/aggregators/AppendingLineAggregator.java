@@ -0,0 +1,19 @@
+package br.com.gabezy.billingjob.aggregators;
+
+import org.springframework.batch.item.file.transform.LineAggregator;
+
+/*
+ * LineAggregator that can append the line to a buffer owned by the writer, so a whole chunk is formatted into a
+ * single reused StringBuilder instead of a String per item.
+ */
+public interface AppendingLineAggregator<T> extends LineAggregator<T> {
+
+    void aggregate(T item, StringBuilder line);
+
+    @Override
+    default String aggregate(T item) {
+        StringBuilder line = new StringBuilder(64);
+        aggregate(item, line);
+        return line.toString();
+    }
+}
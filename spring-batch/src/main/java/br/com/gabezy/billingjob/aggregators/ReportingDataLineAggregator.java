@@ -0,0 +1,28 @@
+package br.com.gabezy.billingjob.aggregators;
+
+import br.com.gabezy.billingjob.domain.BillingData;
+import br.com.gabezy.billingjob.domain.ReportingData;
+
+/*
+ * Formats a ReportingData as "dataYear,dataMonth,accountId,phoneNumber,dataUsage,callDuration,smsCount,billingTotal",
+ * the same line produced by .delimited().names("billingData.dataYear", ...), but reading the record components
+ * directly instead of through a BeanWrapper, and appending the numbers to the buffer (StringBuilder.append formats
+ * them exactly as String.valueOf) instead of creating a String per field and per line.
+ */
+public class ReportingDataLineAggregator implements AppendingLineAggregator<ReportingData> {
+
+    private static final char DELIMITER = ',';
+
+    @Override
+    public void aggregate(ReportingData item, StringBuilder line) {
+        BillingData billingData = item.billingData();
+        line.append(billingData.dataYear()).append(DELIMITER)
+                .append(billingData.dataMonth()).append(DELIMITER)
+                .append(billingData.accountId()).append(DELIMITER)
+                .append(billingData.phoneNumber()).append(DELIMITER)
+                .append(billingData.dataUsage()).append(DELIMITER)
+                .append(billingData.callDuration()).append(DELIMITER)
+                .append(billingData.smsCount()).append(DELIMITER)
+                .append(item.billingTotal());
+    }
+}
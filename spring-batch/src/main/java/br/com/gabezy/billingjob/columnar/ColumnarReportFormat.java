@@ -0,0 +1,417 @@
+package br.com.gabezy.billingjob.columnar;
+
+import br.com.gabezy.billingjob.domain.BillingData;
+import br.com.gabezy.billingjob.domain.ReportingData;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/*
+ * Columnar binary layout of the billing report (little endian):
+ *
+ *   file header: FILE_MAGIC (int), VERSION (byte)
+ *   row group:   ROW_GROUP_MAGIC (int), row count (int), body length (int), CRC32C of the body (int), body
+ *   body:        for each Column, in order: encoding (byte), min and max (column type), data length (int), data
+ *
+ * Encodings:
+ *   INT columns:    DELTA_VARINT, the first value and then the difference to the previous value, zigzag varints
+ *   STRING column:  DICTIONARY (distinct values once, then a varint index per row) when at most half of the values
+ *                   are distinct, otherwise PLAIN (varint length and UTF-8 bytes per row)
+ *   FLOAT/DOUBLE:   PLAIN, the IEEE 754 bits of each value
+ *
+ * There is no footer: each row group is complete by itself, so the file can be truncated after any row group (restart)
+ * and files can be concatenated (merge of the partitions, a file header in the middle of the file is skipped).
+ */
+public final class ColumnarReportFormat {
+
+    public static final int FILE_MAGIC = 0x54505242; // "BRPT"
+    public static final int ROW_GROUP_MAGIC = 0x50524752; // "RGRP"
+    public static final byte VERSION = 1;
+    public static final int FILE_HEADER_SIZE = 5;
+    public static final int ROW_GROUP_HEADER_SIZE = 16;
+
+    static final byte PLAIN = 0;
+    static final byte DELTA_VARINT = 1;
+    static final byte DICTIONARY = 2;
+
+    public enum Type {
+        INT,
+        STRING,
+        FLOAT,
+        DOUBLE
+    }
+
+    public enum Column {
+        DATA_YEAR(Type.INT),
+        DATA_MONTH(Type.INT),
+        ACCOUNT_ID(Type.INT),
+        PHONE_NUMBER(Type.STRING),
+        DATA_USAGE(Type.FLOAT),
+        CALL_DURATION(Type.INT),
+        SMS_COUNT(Type.INT),
+        BILLING_TOTAL(Type.DOUBLE);
+
+        private final Type type;
+
+        Column(Type type) {
+            this.type = type;
+        }
+
+        public Type getType() {
+            return type;
+        }
+    }
+
+    // min and max of each column of a row group, enough to skip row groups without decoding them
+    public record RowGroupStats(int rowCount, Map<Column, Object> min, Map<Column, Object> max) {
+    }
+
+    public record RowGroup(RowGroupStats stats, List<ReportingData> rows) {
+    }
+
+    private ColumnarReportFormat() {
+    }
+
+    public static byte[] fileHeader() {
+        return ByteBuffer.allocate(FILE_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(FILE_MAGIC)
+                .put(VERSION)
+                .array();
+    }
+
+    public static byte[] encodeRowGroup(List<? extends ReportingData> rows) {
+        int count = rows.size();
+        Output body = new Output(count * 16);
+        for (Column column : Column.values()) {
+            switch (column.getType()) {
+                case INT -> encodeInts(body, intColumn(rows, column));
+                case STRING -> encodeStrings(body, rows);
+                case FLOAT -> encodeFloats(body, rows);
+                case DOUBLE -> encodeDoubles(body, rows);
+            }
+        }
+
+        CRC32C crc = new CRC32C();
+        crc.update(body.buffer, 0, body.size);
+        Output rowGroup = new Output(ROW_GROUP_HEADER_SIZE + body.size);
+        rowGroup.writeInt(ROW_GROUP_MAGIC);
+        rowGroup.writeInt(count);
+        rowGroup.writeInt(body.size);
+        rowGroup.writeInt((int) crc.getValue());
+        rowGroup.writeBytes(body.buffer, 0, body.size);
+        return rowGroup.toByteArray();
+    }
+
+    public static RowGroupStats decodeStats(int rowCount, ByteBuffer body) {
+        Map<Column, Object> min = new EnumMap<>(Column.class);
+        Map<Column, Object> max = new EnumMap<>(Column.class);
+        ByteBuffer buffer = body.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        for (Column column : Column.values()) {
+            buffer.get(); // encoding
+            min.put(column, readValue(buffer, column.getType()));
+            max.put(column, readValue(buffer, column.getType()));
+            int length = buffer.getInt();
+            buffer.position(buffer.position() + length);
+        }
+        return new RowGroupStats(rowCount, min, max);
+    }
+
+    public static RowGroup decodeRowGroup(int rowCount, ByteBuffer body) {
+        RowGroupStats stats = decodeStats(rowCount, body);
+        ByteBuffer buffer = body.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        Object[] columns = new Object[Column.values().length];
+        for (Column column : Column.values()) {
+            byte encoding = buffer.get();
+            readValue(buffer, column.getType());
+            readValue(buffer, column.getType());
+            int length = buffer.getInt();
+            ByteBuffer data = buffer.slice(buffer.position(), length).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.position(buffer.position() + length);
+            columns[column.ordinal()] = switch (column.getType()) {
+                case INT -> decodeInts(data, rowCount);
+                case STRING -> decodeStrings(data, encoding, rowCount);
+                case FLOAT -> decodeFloats(data, rowCount);
+                case DOUBLE -> decodeDoubles(data, rowCount);
+            };
+        }
+
+        int[] years = (int[]) columns[Column.DATA_YEAR.ordinal()];
+        int[] months = (int[]) columns[Column.DATA_MONTH.ordinal()];
+        int[] accounts = (int[]) columns[Column.ACCOUNT_ID.ordinal()];
+        String[] phones = (String[]) columns[Column.PHONE_NUMBER.ordinal()];
+        float[] dataUsages = (float[]) columns[Column.DATA_USAGE.ordinal()];
+        int[] callDurations = (int[]) columns[Column.CALL_DURATION.ordinal()];
+        int[] smsCounts = (int[]) columns[Column.SMS_COUNT.ordinal()];
+        double[] totals = (double[]) columns[Column.BILLING_TOTAL.ordinal()];
+        List<ReportingData> rows = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            BillingData billingData = new BillingData(years[i], months[i], accounts[i], phones[i], dataUsages[i],
+                    callDurations[i], smsCounts[i]);
+            rows.add(new ReportingData(billingData, totals[i]));
+        }
+        return new RowGroup(stats, rows);
+    }
+
+    public static boolean checksumMatches(ByteBuffer body, int checksum) {
+        CRC32C crc = new CRC32C();
+        crc.update(body.duplicate());
+        return (int) crc.getValue() == checksum;
+    }
+
+    private static int[] intColumn(List<? extends ReportingData> rows, Column column) {
+        int[] values = new int[rows.size()];
+        for (int i = 0; i < values.length; i++) {
+            BillingData item = rows.get(i).billingData();
+            values[i] = switch (column) {
+                case DATA_YEAR -> item.dataYear();
+                case DATA_MONTH -> item.dataMonth();
+                case ACCOUNT_ID -> item.accountId();
+                case CALL_DURATION -> item.callDuration();
+                case SMS_COUNT -> item.smsCount();
+                default -> throw new IllegalArgumentException("Not an INT column: " + column);
+            };
+        }
+        return values;
+    }
+
+    private static void encodeInts(Output body, int[] values) {
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        Output data = new Output(values.length * 2);
+        int previous = 0;
+        for (int value : values) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            data.writeVarint(zigzag(value - previous));
+            previous = value;
+        }
+        body.writeByte(DELTA_VARINT);
+        body.writeInt(min);
+        body.writeInt(max);
+        body.writeData(data);
+    }
+
+    private static void encodeStrings(Output body, List<? extends ReportingData> rows) {
+        String min = null;
+        String max = null;
+        Map<String, Integer> dictionary = new HashMap<>();
+        for (ReportingData row : rows) {
+            String value = row.billingData().phoneNumber();
+            dictionary.putIfAbsent(value, dictionary.size());
+            min = min == null || value.compareTo(min) < 0 ? value : min;
+            max = max == null || value.compareTo(max) > 0 ? value : max;
+        }
+
+        Output data = new Output(rows.size() * 4);
+        byte encoding;
+        if (dictionary.size() * 2 <= rows.size()) {
+            encoding = DICTIONARY;
+            String[] entries = new String[dictionary.size()];
+            dictionary.forEach((value, index) -> entries[index] = value);
+            data.writeVarint(entries.length);
+            for (String entry : entries) {
+                data.writeString(entry);
+            }
+            for (ReportingData row : rows) {
+                data.writeVarint(dictionary.get(row.billingData().phoneNumber()));
+            }
+        } else {
+            encoding = PLAIN;
+            for (ReportingData row : rows) {
+                data.writeString(row.billingData().phoneNumber());
+            }
+        }
+        body.writeByte(encoding);
+        body.writeString(min == null ? "" : min);
+        body.writeString(max == null ? "" : max);
+        body.writeData(data);
+    }
+
+    private static void encodeFloats(Output body, List<? extends ReportingData> rows) {
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+        Output data = new Output(rows.size() * 4);
+        for (ReportingData row : rows) {
+            float value = row.billingData().dataUsage();
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            data.writeInt(Float.floatToRawIntBits(value));
+        }
+        body.writeByte(PLAIN);
+        body.writeInt(Float.floatToRawIntBits(min));
+        body.writeInt(Float.floatToRawIntBits(max));
+        body.writeData(data);
+    }
+
+    private static void encodeDoubles(Output body, List<? extends ReportingData> rows) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        Output data = new Output(rows.size() * 8);
+        for (ReportingData row : rows) {
+            double value = row.billingTotal();
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            data.writeLong(Double.doubleToRawLongBits(value));
+        }
+        body.writeByte(PLAIN);
+        body.writeLong(Double.doubleToRawLongBits(min));
+        body.writeLong(Double.doubleToRawLongBits(max));
+        body.writeData(data);
+    }
+
+    private static Object readValue(ByteBuffer buffer, Type type) {
+        return switch (type) {
+            case INT -> buffer.getInt();
+            case STRING -> readString(buffer);
+            case FLOAT -> buffer.getFloat();
+            case DOUBLE -> buffer.getDouble();
+        };
+    }
+
+    private static int[] decodeInts(ByteBuffer data, int rowCount) {
+        int[] values = new int[rowCount];
+        int previous = 0;
+        for (int i = 0; i < rowCount; i++) {
+            previous += unzigzag(readVarint(data));
+            values[i] = previous;
+        }
+        return values;
+    }
+
+    private static String[] decodeStrings(ByteBuffer data, byte encoding, int rowCount) {
+        String[] values = new String[rowCount];
+        if (encoding == DICTIONARY) {
+            String[] entries = new String[readVarint(data)];
+            for (int i = 0; i < entries.length; i++) {
+                entries[i] = readString(data);
+            }
+            for (int i = 0; i < rowCount; i++) {
+                values[i] = entries[readVarint(data)];
+            }
+        } else {
+            for (int i = 0; i < rowCount; i++) {
+                values[i] = readString(data);
+            }
+        }
+        return values;
+    }
+
+    private static float[] decodeFloats(ByteBuffer data, int rowCount) {
+        float[] values = new float[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            values[i] = data.getFloat();
+        }
+        return values;
+    }
+
+    private static double[] decodeDoubles(ByteBuffer data, int rowCount) {
+        double[] values = new double[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            values[i] = data.getDouble();
+        }
+        return values;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = readVarint(buffer);
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static int readVarint(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte current;
+        do {
+            current = buffer.get();
+            value |= (current & 0x7F) << shift;
+            shift += 7;
+        } while (current < 0);
+        return value;
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    // growable little endian buffer
+    private static final class Output {
+
+        private byte[] buffer;
+        private int size;
+
+        Output(int capacity) {
+            this.buffer = new byte[Math.max(16, capacity)];
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            buffer[size++] = (byte) value;
+        }
+
+        void writeInt(int value) {
+            ensure(4);
+            for (int i = 0; i < 4; i++) {
+                buffer[size++] = (byte) (value >>> (8 * i));
+            }
+        }
+
+        void writeLong(long value) {
+            ensure(8);
+            for (int i = 0; i < 8; i++) {
+                buffer[size++] = (byte) (value >>> (8 * i));
+            }
+        }
+
+        void writeVarint(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length);
+            writeBytes(bytes, 0, bytes.length);
+        }
+
+        void writeBytes(byte[] bytes, int offset, int length) {
+            ensure(length);
+            System.arraycopy(bytes, offset, buffer, size, length);
+            size += length;
+        }
+
+        // length prefixed block of another buffer
+        void writeData(Output data) {
+            writeInt(data.size);
+            writeBytes(data.buffer, 0, data.size);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+
+        private void ensure(int length) {
+            if (size + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + length));
+            }
+        }
+    }
+}
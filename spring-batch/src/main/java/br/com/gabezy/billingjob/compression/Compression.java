@@ -0,0 +1,87 @@
+package br.com.gabezy.billingjob.compression;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdInputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/*
+ * Compression of the billing files. The compressed data is always written as a sequence of independent gzip members
+ * (or zstd frames), one per block of data, so a file can be truncated at the end of any block and concatenated with
+ * other files of the same compression and still be read as a single stream.
+ */
+public enum Compression {
+
+    NONE(""),
+    GZIP(".gz"),
+    ZSTD(".zst");
+
+    private static final int ZSTD_LEVEL = 3;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String extension;
+
+    Compression(String extension) {
+        this.extension = extension;
+    }
+
+    /*
+     * The compression given as a job parameter ("none", "gzip" or "zstd") or, when the parameter is missing, the
+     * compression of the file extension (.gz or .zst).
+     */
+    public static Compression of(String file, String parameter) {
+        if (Objects.nonNull(parameter) && !parameter.isBlank()) {
+            return valueOf(parameter.trim().toUpperCase(Locale.ROOT));
+        }
+        String name = file.toLowerCase(Locale.ROOT);
+        if (name.endsWith(GZIP.extension) || name.endsWith(".gzip")) {
+            return GZIP;
+        }
+        if (name.endsWith(ZSTD.extension) || name.endsWith(".zstd")) {
+            return ZSTD;
+        }
+        return NONE;
+    }
+
+    public InputStream decompress(InputStream compressed) throws IOException {
+        return switch (this) {
+            case NONE -> compressed;
+            // both read all the members (frames) of a concatenated file
+            case GZIP -> new GZIPInputStream(compressed, BUFFER_SIZE);
+            case ZSTD -> new ZstdInputStream(compressed);
+        };
+    }
+
+    // a complete gzip member or zstd frame
+    public byte[] compress(byte[] data, int length) throws IOException {
+        return switch (this) {
+            case NONE -> length == data.length ? data : Arrays.copyOf(data, length);
+            case GZIP -> {
+                ByteArrayOutputStream member = new ByteArrayOutputStream(Math.max(64, length / 4));
+                try (GZIPOutputStream gzip = new GZIPOutputStream(member, BUFFER_SIZE)) {
+                    gzip.write(data, 0, length);
+                }
+                yield member.toByteArray();
+            }
+            case ZSTD -> {
+                byte[] frame = new byte[(int) Zstd.compressBound(length)];
+                long size = Zstd.compressByteArray(frame, 0, frame.length, data, 0, length, ZSTD_LEVEL);
+                if (Zstd.isError(size)) {
+                    throw new IOException("Unable to compress block: " + Zstd.getErrorName(size));
+                }
+                yield Arrays.copyOf(frame, (int) size);
+            }
+        };
+    }
+
+    public boolean isCompressed() {
+        return this != NONE;
+    }
+}
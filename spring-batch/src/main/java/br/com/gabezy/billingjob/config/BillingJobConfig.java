@@ -1,126 +1,894 @@
 package br.com.gabezy.billingjob.config;
 
+import br.com.gabezy.billingjob.aggregators.AccountTotals;
+import br.com.gabezy.billingjob.aggregators.ReportingDataLineAggregator;
+import br.com.gabezy.billingjob.compression.Compression;
 import br.com.gabezy.billingjob.domain.BillingData;
+import br.com.gabezy.billingjob.domain.BillingDataChange;
+import br.com.gabezy.billingjob.domain.RateCard;
 import br.com.gabezy.billingjob.domain.ReportingData;
 import br.com.gabezy.billingjob.listeners.BillingDataSkipListener;
+import br.com.gabezy.billingjob.mappers.BillingDataLineMapper;
+import br.com.gabezy.billingjob.partitioners.AccountRangePartitioner;
+import br.com.gabezy.billingjob.partitioners.BillingFilePartitioner;
+import br.com.gabezy.billingjob.policies.AdaptiveCompletionPolicy;
+import br.com.gabezy.billingjob.policies.RatioSkipPolicy;
 import br.com.gabezy.billingjob.processors.BillingDataProcessor;
-import br.com.gabezy.billingjob.services.PricingService;
+import br.com.gabezy.billingjob.readers.BillingDataDeltaReader;
+import br.com.gabezy.billingjob.readers.CompressedFileResource;
+import br.com.gabezy.billingjob.readers.FileRangeResource;
+import br.com.gabezy.billingjob.readers.MappedBillingDataFileReader;
+import br.com.gabezy.billingjob.services.AsyncJobLauncherService;
+import br.com.gabezy.billingjob.services.PricingSnapshotService;
+import br.com.gabezy.billingjob.steps.AccountAggregationTasklet;
 import br.com.gabezy.billingjob.steps.CleanupBillingDatabaseStep;
+import br.com.gabezy.billingjob.steps.DeltaBaselineTasklet;
 import br.com.gabezy.billingjob.steps.FilePreparationTasklet;
+import br.com.gabezy.billingjob.steps.IncrementalStateCleanupTasklet;
+import br.com.gabezy.billingjob.steps.ReportMergeTasklet;
+import br.com.gabezy.billingjob.writers.BillingDataCopyItemWriter;
+import br.com.gabezy.billingjob.writers.BillingDataDeltaItemWriter;
+import br.com.gabezy.billingjob.writers.BlockFileItemWriter;
+import br.com.gabezy.billingjob.writers.ChunkPricingItemWriter;
+import br.com.gabezy.billingjob.writers.ColumnarReportItemWriter;
+import br.com.gabezy.billingjob.writers.CompressedFileItemWriter;
+import br.com.gabezy.billingjob.writers.PricingItemWriter;
+import br.com.gabezy.billingjob.writers.ReportPatchItemWriter;
+import br.com.gabezy.billingjob.writers.ReportingDataFileItemWriter;
+import br.com.gabezy.billingjob.writers.TieredReportItemWriter;
+import org.springframework.batch.core.ChunkListener;
 import org.springframework.batch.core.Job;
+import org.springframework.batch.core.SkipListener;
 import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecutionListener;
 import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.explore.JobExplorer;
 import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.job.builder.SimpleJobBuilder;
 import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.FaultTolerantStepBuilder;
 import org.springframework.batch.core.step.builder.StepBuilder;
 import org.springframework.batch.item.ItemProcessor;
 import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.ItemStreamWriter;
 import org.springframework.batch.item.ItemWriter;
 import org.springframework.batch.item.database.JdbcBatchItemWriter;
 import org.springframework.batch.item.database.JdbcCursorItemReader;
+import org.springframework.batch.item.database.JdbcPagingItemReader;
+import org.springframework.batch.item.database.Order;
 import org.springframework.batch.item.database.builder.JdbcBatchItemWriterBuilder;
 import org.springframework.batch.item.database.builder.JdbcCursorItemReaderBuilder;
-import org.springframework.batch.item.file.FlatFileItemReader;
+import org.springframework.batch.item.database.builder.JdbcPagingItemReaderBuilder;
+import org.springframework.batch.item.database.support.SqlPagingQueryProviderFactoryBean;
 import org.springframework.batch.item.file.FlatFileItemWriter;
-import org.springframework.batch.item.file.FlatFileParseException;
 import org.springframework.batch.item.file.builder.FlatFileItemReaderBuilder;
-import org.springframework.batch.item.file.builder.FlatFileItemWriterBuilder;
+import org.springframework.batch.item.support.CompositeItemWriter;
+import org.springframework.batch.item.support.builder.CompositeItemWriterBuilder;
+import org.springframework.batch.item.support.builder.SynchronizedItemStreamReaderBuilder;
+import org.springframework.batch.item.support.builder.SynchronizedItemStreamWriterBuilder;
+import org.springframework.batch.integration.async.AsyncItemProcessor;
+import org.springframework.batch.integration.async.AsyncItemWriter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.batch.BatchProperties;
+import org.springframework.boot.autoconfigure.batch.JobLauncherApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.jdbc.core.DataClassRowMapper;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
 import org.springframework.jdbc.support.JdbcTransactionManager;
+import org.springframework.retry.RetryListener;
 import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
 
 import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.Future;
 
 @Configuration
 public class BillingJobConfig {
 
+    private static final double PUSHDOWN_THRESHOLD_MARGIN = 1e-4;
+
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
     @Autowired
-    private PricingService pricingService;
+    private PricingSnapshotService pricingSnapshotService;
+
+    @Autowired
+    private BillingTaskExecutors taskExecutors;
+
+    @Value("${spring.cellular.staging.mode:COPY}")
+    private FilePreparationTasklet.StagingMode stagingMode;
+
+    @Value("${spring.cellular.ingestion.partitioned:false}")
+    private boolean partitionedIngestion;
+
+    // read skips: at least skip.limit lines, or skip.ratio of the lines read (e.g. 0.01), whichever is higher
+    @Value("${spring.cellular.skip.limit:10}")
+    private long skipLimit;
+
+    @Value("${spring.cellular.skip.ratio:0}")
+    private double skipRatio;
+
+    // the skipped lines are also inserted in BILLING_DATA_QUARANTINE
+    @Value("${spring.cellular.skip.quarantine:false}")
+    private boolean skipQuarantine;
+
+    // reads the input file once: each chunk is written to BILLING_DATA and priced into the report (fileIngestionAndReport)
+    @Value("${spring.cellular.fused:false}")
+    private boolean fusedReport;
+
+    // only the rows changed since the last run of the month are written to BILLING_DATA and the report
+    @Value("${spring.cellular.ingestion.incremental:false}")
+    private boolean incrementalIngestion;
+
+    // totals by account of the month (accountAggregation), spilled to disk when over the memory budget
+    @Value("${spring.cellular.aggregation.enabled:false}")
+    private boolean accountAggregation;
+
+    @Value("${spring.cellular.aggregation.memory-budget:64MB}")
+    private DataSize aggregationMemoryBudget;
+
+    @Value("${spring.cellular.aggregation.top:100}")
+    private int aggregationTop;
+
+    @Value("${spring.cellular.aggregation.fetch-size:10000}")
+    private int aggregationFetchSize;
+
+    @Value("${spring.cellular.ingestion.grid-size:4}")
+    private int ingestionGridSize;
+
+    // consumer threads of the fileIngestion step
+    @Value("${spring.cellular.ingestion.threads:1}")
+    private int ingestionThreads;
+
+    @Value("${spring.cellular.ingestion.reader:flatfile}")
+    private String ingestionReader;
+
+    @Value("${spring.cellular.ingestion.writer:jdbc}")
+    private String ingestionWriter;
+
+    @Value("${spring.cellular.spending.threshold:150}")
+    private float spendingThreshold;
+
+    // extra spending thresholds (e.g. 500,1000): reportGeneration also writes one report per threshold, in one scan
+    @Value("${spring.cellular.report.tiers:}")
+    private float[] reportTiers;
+
+    // "item" (BillingDataProcessor, one item at a time) or "chunk" (ChunkPricingItemWriter, whole chunk at once)
+    @Value("${spring.cellular.report.pricing:item}")
+    private String reportPricing;
+
+    // filters the rows under the spending threshold in the reader query
+    @Value("${spring.cellular.report.pushdown:false}")
+    private boolean reportPushdown;
+
+    @Value("${spring.cellular.report.partitioned:false}")
+    private boolean partitionedReport;
+
+    @Value("${spring.cellular.report.grid-size:4}")
+    private int reportGridSize;
+
+    @Value("${spring.cellular.report.remote.enabled:false}")
+    private boolean remoteReport;
+
+    // BILLING_DATA partitioned by month (src/sql/schema-billing-partitioned-postgresql.sql)
+    @Value("${spring.cellular.storage.partitioned:false}")
+    private boolean partitionedStorage;
+
+    // "cursor" (JdbcCursorItemReader, one query for the whole step) or "paging" (keyset paged JdbcPagingItemReader)
+    @Value("${spring.cellular.report.reader:cursor}")
+    private String reportReader;
+
+    @Value("${spring.cellular.report.page-size:1000}")
+    private int reportPageSize;
+
+    // consumer threads of the reportGeneration step
+    @Value("${spring.cellular.report.threads:1}")
+    private int reportThreads;
+
+    // prices the items on reportPricingTaskExecutor while the step thread keeps reading
+    @Value("${spring.cellular.report.async.enabled:false}")
+    private boolean asyncReport;
+
+    @Value("${spring.cellular.report.async.threads:4}")
+    private int asyncReportThreads;
+
+    // chunk size of fileIngestion and reportGeneration, resized between min-size and max-size when adaptive
+    @Value("${spring.cellular.chunk.adaptive:false}")
+    private boolean adaptiveChunks;
+
+    @Value("${spring.cellular.chunk.min-size:50}")
+    private int minChunkSize;
+
+    @Value("${spring.cellular.chunk.max-size:5000}")
+    private int maxChunkSize;
+
+    @Value("${spring.cellular.chunk.target-latency:PT0.5S}")
+    private Duration chunkTargetLatency;
 
     @Bean
     public Job job(JobRepository jobRepository, Step step1, Step cleanupBillingTableStep
-            ,Step step2, Step step3) {
-        return new JobBuilder("BillingJob", jobRepository)
-                .start(step1)
-//                .next(cleanupBillingTableStep)
-                .next(step2)
-                .next(step3)
-                .build();
+            ,Step step2, Step partitionedStep2, Step step3, Step partitionedStep3, Step remotePartitionedStep3
+            ,Step reportMergeStep, Step deltaBaselineStep, Step deltaIngestionStep, Step reportPatchStep
+            ,Step fusedStep, Step tieredStep3, Step accountAggregationStep, Step incrementalStateCleanupStep) {
+        // a multi-threaded ingestion doesn't save the position of the reader: a restart reads the whole file again and
+        // only the cleanup of the month partition removes the rows inserted by the failed run
+        if (ingestionThreads > 1 && !incrementalIngestion && !partitionedStorage) {
+            throw new IllegalStateException("spring.cellular.ingestion.threads=" + ingestionThreads +
+                    " requires spring.cellular.storage.partitioned=true, otherwise a restart inserts the rows again");
+        }
+        if (incrementalIngestion) {
+            requireIncrementalCompatible();
+        }
+        if (fusedReport) {
+            requireFusedCompatible();
+        }
+        if (reportTiers.length > 0) {
+            requireTiersCompatible();
+        }
+        if ("chunk".equalsIgnoreCase(reportPricing)) {
+            requireChunkPricingCompatible();
+        }
+        SimpleJobBuilder jobBuilder = new JobBuilder("BillingJob", jobRepository)
+                .start(step1);
+        if (incrementalIngestion) {
+            return build(jobBuilder.next(deltaBaselineStep)
+                    .next(deltaIngestionStep)
+                    .next(reportPatchStep), accountAggregationStep);
+        }
+        // the full ingestion rewrites the month, the fingerprints of a previous incremental ingestion would be stale
+        jobBuilder.next(incrementalStateCleanupStep);
+        // with the month partitions the cleanup is a TRUNCATE, cheap enough to run on every execution
+        if (partitionedStorage) {
+            jobBuilder.next(cleanupBillingTableStep);
+        }
+        if (fusedReport) {
+            return build(jobBuilder.next(fusedStep), accountAggregationStep);
+        }
+        jobBuilder.next(partitionedIngestion ? partitionedStep2 : step2);
+
+        if (remoteReport) {
+            return build(jobBuilder.next(remotePartitionedStep3)
+                    .next(reportMergeStep), accountAggregationStep);
+        }
+        if (partitionedReport) {
+            return build(jobBuilder.next(partitionedStep3)
+                    .next(reportMergeStep), accountAggregationStep);
+        }
+        return build(jobBuilder.next(reportTiers.length > 0 ? tieredStep3 : step3), accountAggregationStep);
+    }
+
+    // the incremental ingestion replaces step2 and step3 by deltaIngestion and reportPatch, single-threaded steps that
+    // write BILLING_DATA and patch the report of spending.threshold: the options of the full ingestion would be ignored
+    private void requireIncrementalCompatible() {
+        List<String> incompatible = new ArrayList<>();
+        if (fusedReport) {
+            incompatible.add("spring.cellular.fused");
+        }
+        if (reportTiers.length > 0) {
+            incompatible.add("spring.cellular.report.tiers");
+        }
+        if (partitionedIngestion) {
+            incompatible.add("spring.cellular.ingestion.partitioned");
+        }
+        if (ingestionThreads > 1) {
+            incompatible.add("spring.cellular.ingestion.threads");
+        }
+        if ("copy".equalsIgnoreCase(ingestionWriter)) {
+            incompatible.add("spring.cellular.ingestion.writer");
+        }
+        if (partitionedReport) {
+            incompatible.add("spring.cellular.report.partitioned");
+        }
+        if (remoteReport) {
+            incompatible.add("spring.cellular.report.remote.enabled");
+        }
+        if (asyncReport) {
+            incompatible.add("spring.cellular.report.async.enabled");
+        }
+        if ("paging".equalsIgnoreCase(reportReader)) {
+            incompatible.add("spring.cellular.report.reader");
+        }
+        if (reportThreads > 1) {
+            incompatible.add("spring.cellular.report.threads");
+        }
+        if ("chunk".equalsIgnoreCase(reportPricing)) {
+            incompatible.add("spring.cellular.report.pricing");
+        }
+        if (!incompatible.isEmpty()) {
+            throw new IllegalStateException("spring.cellular.ingestion.incremental=true applies the delta of the file " +
+                    "without step2 and step3, and can't be combined with " + String.join(", ", incompatible));
+        }
+    }
+
+    // only the tieredStep3 writes the reports of the tiers, the partitioned, remote and async reports would skip them
+    private void requireTiersCompatible() {
+        List<String> incompatible = new ArrayList<>();
+        if (partitionedReport) {
+            incompatible.add("spring.cellular.report.partitioned");
+        }
+        if (remoteReport) {
+            incompatible.add("spring.cellular.report.remote.enabled");
+        }
+        if (asyncReport) {
+            incompatible.add("spring.cellular.report.async.enabled");
+        }
+        if (!incompatible.isEmpty()) {
+            throw new IllegalStateException("spring.cellular.report.tiers=" + Arrays.toString(reportTiers) +
+                    " is only written by the tieredReportGeneration step and can't be combined with " +
+                    String.join(", ", incompatible));
+        }
+    }
+
+    // the fused step replaces step2 and step3, the options of these steps would be silently ignored
+    private void requireFusedCompatible() {
+        List<String> incompatible = new ArrayList<>();
+        if (reportTiers.length > 0) {
+            incompatible.add("spring.cellular.report.tiers");
+        }
+        if (partitionedIngestion) {
+            incompatible.add("spring.cellular.ingestion.partitioned");
+        }
+        if (partitionedReport) {
+            incompatible.add("spring.cellular.report.partitioned");
+        }
+        if (remoteReport) {
+            incompatible.add("spring.cellular.report.remote.enabled");
+        }
+        if (asyncReport) {
+            incompatible.add("spring.cellular.report.async.enabled");
+        }
+        if (reportPushdown) {
+            incompatible.add("spring.cellular.report.pushdown");
+        }
+        if ("paging".equalsIgnoreCase(reportReader)) {
+            incompatible.add("spring.cellular.report.reader");
+        }
+        if (reportThreads > 1) {
+            incompatible.add("spring.cellular.report.threads");
+        }
+        if ("chunk".equalsIgnoreCase(reportPricing)) {
+            incompatible.add("spring.cellular.report.pricing");
+        }
+        if (!incompatible.isEmpty()) {
+            throw new IllegalStateException("spring.cellular.fused=true reads the input file once, without step2 " +
+                    "and step3, and can't be combined with " + String.join(", ", incompatible));
+        }
+    }
+
+    // only the single step3 has a chunk pricing writer, the other report steps price with the BillingDataProcessor
+    private void requireChunkPricingCompatible() {
+        List<String> incompatible = new ArrayList<>();
+        if (reportTiers.length > 0) {
+            incompatible.add("spring.cellular.report.tiers");
+        }
+        if (partitionedReport) {
+            incompatible.add("spring.cellular.report.partitioned");
+        }
+        if (remoteReport) {
+            incompatible.add("spring.cellular.report.remote.enabled");
+        }
+        if (asyncReport) {
+            incompatible.add("spring.cellular.report.async.enabled");
+        }
+        if (!incompatible.isEmpty()) {
+            throw new IllegalStateException("spring.cellular.report.pricing=chunk only applies to the reportGeneration " +
+                    "step and can't be combined with " + String.join(", ", incompatible));
+        }
+    }
+
+    // whatever the report mode, the totals by account are computed from BILLING_DATA once the report is written
+    private Job build(SimpleJobBuilder jobBuilder, Step accountAggregationStep) {
+        if (accountAggregation) {
+            jobBuilder.next(accountAggregationStep);
+        }
+        return jobBuilder.build();
     }
 
     @Bean
     public Step step1(JobRepository jobRepository, JdbcTransactionManager transactionManager) {
         return new StepBuilder("filePreparation", jobRepository)
-                .tasklet(new FilePreparationTasklet(), transactionManager)
+                .tasklet(new FilePreparationTasklet(stagingMode), transactionManager)
                 .build();
     }
 
     @Bean Step cleanupBillingTableStep(JobRepository repository, JdbcTransactionManager transactionManager) {
         return new StepBuilder("cleanupBillingTable", repository)
-                .tasklet(new CleanupBillingDatabaseStep(jdbcTemplate), transactionManager)
+                .tasklet(new CleanupBillingDatabaseStep(jdbcTemplate, partitionedStorage), transactionManager)
+                .build();
+    }
+
+    @Bean
+    public Step incrementalStateCleanupStep(JobRepository repository, JdbcTransactionManager transactionManager) {
+        return new StepBuilder("incrementalStateCleanup", repository)
+                .tasklet(new IncrementalStateCleanupTasklet(jdbcTemplate), transactionManager)
                 .build();
     }
 
     @Bean
     public Step step2(JobRepository repository, PlatformTransactionManager transactionManager,
-                      ItemReader<BillingData> billingDataFileReader, ItemWriter<BillingData> billingDataTableWriter,
-                      BillingDataSkipListener skipListener) {
-        return new StepBuilder("fileIngestion", repository)
+                      ItemReader<BillingData> billingDataFileReader, ItemWriter<BillingData> billingDataIngestionWriter,
+                      BillingDataSkipListener skipListener, AdaptiveCompletionPolicy ingestionCompletionPolicy) {
+        return multiThreaded(adaptive(skipLog(new StepBuilder("fileIngestion", repository)
                 // input        output      of the step
-                .<BillingData, BillingData>chunk(100, transactionManager)
+                .<BillingData, BillingData>chunk(ingestionCompletionPolicy, transactionManager)
                 .reader(billingDataFileReader)
-                .writer(billingDataTableWriter)
-                .faultTolerant()
-                .skip(FlatFileParseException.class)
-                .skipLimit(10)
-                .listener(skipListener)
+                .writer(billingDataIngestionWriter)
+                .faultTolerant(), skipListener), ingestionCompletionPolicy), ingestionThreads,
+                ingestionStepTaskExecutor());
+    }
+
+    @Bean
+    public Step accountAggregationStep(JobRepository repository, JdbcTransactionManager transactionManager,
+                                       AccountAggregationTasklet accountAggregationTasklet) {
+        return new StepBuilder("accountAggregation", repository)
+                .tasklet(accountAggregationTasklet, transactionManager)
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public AccountAggregationTasklet accountAggregationTasklet(
+            @Value("#{jobParameters['data.year']}") Integer year,
+            @Value("#{jobParameters['data.month']}") Integer month,
+            @Value("#{jobParameters['output.file']}") String outputFile) {
+        requireMonth(year, month);
+        // own JdbcTemplate: the fetch size makes the driver stream the month instead of loading it at once
+        JdbcTemplate aggregationJdbcTemplate = new JdbcTemplate(Objects.requireNonNull(jdbcTemplate.getDataSource()));
+        aggregationJdbcTemplate.setFetchSize(aggregationFetchSize);
+        return new AccountAggregationTasklet(aggregationJdbcTemplate, pricingSnapshotService::getRateCard, year, month,
+                outputFile, AccountTotals.maxAccounts(aggregationMemoryBudget.toBytes()), aggregationTop);
+    }
+
+    @Bean
+    public Step deltaBaselineStep(JobRepository repository, JdbcTransactionManager transactionManager,
+                                  DeltaBaselineTasklet deltaBaselineTasklet) {
+        return new StepBuilder("deltaBaseline", repository)
+                .tasklet(deltaBaselineTasklet, transactionManager)
                 .build();
     }
 
+    @Bean
+    @StepScope
+    public DeltaBaselineTasklet deltaBaselineTasklet(@Value("#{jobParameters['data.year']}") Integer year,
+                                                     @Value("#{jobParameters['data.month']}") Integer month) {
+        requireMonth(year, month);
+        return new DeltaBaselineTasklet(jdbcTemplate, new CleanupBillingDatabaseStep(jdbcTemplate, partitionedStorage),
+                year, month);
+    }
+
+    // single threaded: the removed rows are only known once the whole file was read by one reader
+    @Bean
+    public Step deltaIngestionStep(JobRepository repository, PlatformTransactionManager transactionManager,
+                                   ItemReader<BillingDataChange> billingDataDeltaReader,
+                                   ItemWriter<BillingDataChange> billingDataDeltaWriter,
+                                   BillingDataSkipListener skipListener,
+                                   AdaptiveCompletionPolicy ingestionCompletionPolicy) {
+        return adaptive(skipLog(new StepBuilder("deltaIngestion", repository)
+                .<BillingDataChange, BillingDataChange>chunk(ingestionCompletionPolicy, transactionManager)
+                .reader(billingDataDeltaReader)
+                .writer(billingDataDeltaWriter)
+                .faultTolerant(), skipListener), ingestionCompletionPolicy)
+                .build();
+    }
+
+    // the ReportPatchItemWriter replaces the report when the step completes (it is also a StepExecutionListener)
+    @Bean
+    public Step reportPatchStep(JobRepository repository, JdbcTransactionManager transactionManager,
+                                ItemReader<BillingData> billingDataDeltaTableReader,
+                                ItemProcessor<BillingData, ReportingData> billingDataProcessor,
+                                ItemWriter<ReportingData> reportPatchWriter) {
+        return new StepBuilder("reportPatch", repository)
+                .<BillingData, ReportingData>chunk(100, transactionManager)
+                .reader(billingDataDeltaTableReader)
+                .processor(billingDataProcessor)
+                .writer(reportPatchWriter)
+                .build();
+    }
+
+    /*
+     * step2 and step3 in a single pass over the input file: every chunk read from the file goes to the BILLING_DATA
+     * writer and to the PricingItemWriter of the report, in the same transaction, so BILLING_DATA isn't read
+     * back. The file reader and the report writer save their state at the same commits, so a restart resumes both.
+     */
+    @Bean
+    public Step fusedStep(JobRepository repository, PlatformTransactionManager transactionManager,
+                          ItemReader<BillingData> billingDataFileReader, ItemWriter<BillingData> billingDataIngestionWriter,
+                          PricingItemWriter fusedPricingWriter, BillingDataSkipListener skipListener,
+                          AdaptiveCompletionPolicy ingestionCompletionPolicy) {
+        CompositeItemWriter<BillingData> writer = new CompositeItemWriterBuilder<BillingData>()
+                .delegates(billingDataIngestionWriter, fusedPricingWriter)
+                .build();
+        return multiThreaded(adaptive(skipLog(new StepBuilder("fileIngestionAndReport", repository)
+                .<BillingData, BillingData>chunk(ingestionCompletionPolicy, transactionManager)
+                .reader(billingDataFileReader)
+                .writer(writer)
+                .faultTolerant(), skipListener), ingestionCompletionPolicy), ingestionThreads,
+                ingestionStepTaskExecutor());
+    }
+
+    // manager step: splits the input file in byte ranges and runs one fileIngestionWorker per range in parallel
+    @Bean
+    public Step partitionedStep2(JobRepository repository, Step fileIngestionWorkerStep,
+                                 BillingFilePartitioner billingFilePartitioner, TaskExecutor ingestionTaskExecutor) {
+        return new StepBuilder("partitionedFileIngestion", repository)
+                .partitioner(fileIngestionWorkerStep.getName(), billingFilePartitioner)
+                .step(fileIngestionWorkerStep)
+                .gridSize(ingestionGridSize)
+                .taskExecutor(ingestionTaskExecutor)
+                .build();
+    }
+
+    // each partition has its own step execution, so its reader keeps its own restart state
+    @Bean
+    public Step fileIngestionWorkerStep(JobRepository repository, PlatformTransactionManager transactionManager,
+                                        ItemReader<BillingData> billingDataPartitionFileReader,
+                                        ItemWriter<BillingData> billingDataIngestionWriter,
+                                        BillingDataSkipListener skipListener,
+                                        AdaptiveCompletionPolicy ingestionCompletionPolicy) {
+        return adaptive(skipLog(new StepBuilder("fileIngestionWorker", repository)
+                .<BillingData, BillingData>chunk(ingestionCompletionPolicy, transactionManager)
+                .reader(billingDataPartitionFileReader)
+                .writer(billingDataIngestionWriter)
+                .faultTolerant(), skipListener), ingestionCompletionPolicy)
+                .build();
+    }
+
+    @Bean
+    @StepScope
+    public BillingFilePartitioner billingFilePartitioner(
+            @Value("#{jobParameters['input.file']}") String inputFile,
+            @Value("#{jobParameters['input.compression']}") String inputCompression) {
+        // the byte ranges of the partitions only exist in the uncompressed file
+        if (Compression.of(inputFile, inputCompression).isCompressed()) {
+            throw new IllegalStateException("Partitioned ingestion requires an uncompressed input file: " + inputFile);
+        }
+        return new BillingFilePartitioner(inputFile);
+    }
+
+    // jobs launched by the AsyncJobLauncherService
+    @Bean
+    public AsyncTaskExecutor jobLauncherTaskExecutor(@Value("${spring.cellular.executor.max-jobs:2}") int maxJobs) {
+        return taskExecutors.create("billingJob-", maxJobs);
+    }
+
+    /*
+     * Replaces the runner of Spring Boot that runs the job at the startup (spring.batch.job.enabled), so the job runs
+     * on the jobLauncherTaskExecutor like the other launches. The runner waits for the job, as with the synchronous
+     * launcher of Spring Boot.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "spring.batch.job", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public JobLauncherApplicationRunner jobLauncherApplicationRunner(AsyncJobLauncherService jobLauncherService,
+                                                                     JobExplorer jobExplorer,
+                                                                     JobRepository jobRepository,
+                                                                     BatchProperties batchProperties) {
+        JobLauncherApplicationRunner runner = new JobLauncherApplicationRunner(jobLauncherService::runAndWait,
+                jobExplorer, jobRepository);
+        String jobName = batchProperties.getJob().getName();
+        if (StringUtils.hasText(jobName)) {
+            runner.setJobName(jobName);
+        }
+        return runner;
+    }
+
+    @Bean
+    public TaskExecutor ingestionTaskExecutor() {
+        return taskExecutors.create("fileIngestion-", ingestionGridSize);
+    }
+
+    @Bean
+    public TaskExecutor ingestionStepTaskExecutor() {
+        return taskExecutors.create("fileIngestionThread-", ingestionThreads);
+    }
+
+    // step scoped: each execution of a step, and so each partition, starts from the initial size (or the size saved by
+    // the failed execution) and adapts its own chunks
+    @Bean
+    @StepScope
+    public AdaptiveCompletionPolicy ingestionCompletionPolicy() {
+        return completionPolicy();
+    }
+
+    @Bean
+    @StepScope
+    public AdaptiveCompletionPolicy reportCompletionPolicy() {
+        return completionPolicy();
+    }
+
+    private AdaptiveCompletionPolicy completionPolicy() {
+        if (!adaptiveChunks) {
+            return new AdaptiveCompletionPolicy(100);
+        }
+        return new AdaptiveCompletionPolicy(100, minChunkSize, maxChunkSize, chunkTargetLatency);
+    }
+
     @Bean
     @StepScope
     public BillingDataSkipListener skipListener(@Value("#{jobParameters['skip.file']}") String skippedFile) {
-        return new BillingDataSkipListener(skippedFile);
+        return new BillingDataSkipListener(skippedFile, skipQuarantine ? jdbcTemplate : null);
+    }
+
+    @Bean
+    public RatioSkipPolicy ingestionSkipPolicy() {
+        return new RatioSkipPolicy(skipLimit, skipRatio);
+    }
+
+    /*
+     * The lines that can't be parsed are skipped up to the skip limit (or the skip ratio of the lines read), and
+     * written to the skip file by the skip listener, which also closes the file at the end of the step. The skip
+     * listener only handles the read skips, which don't depend on the item type.
+     */
+    @SuppressWarnings("unchecked")
+    private <I, O> FaultTolerantStepBuilder<I, O> skipLog(FaultTolerantStepBuilder<I, O> stepBuilder,
+                                                          BillingDataSkipListener skipListener) {
+        stepBuilder.skipPolicy(ingestionSkipPolicy());
+        stepBuilder.listener((SkipListener<I, O>) (SkipListener<?, ?>) skipListener);
+        stepBuilder.listener((StepExecutionListener) skipListener);
+        return stepBuilder;
     }
 
     @Bean
     public Step step3(JobRepository jobRepository, JdbcTransactionManager transactionManager,
                       ItemReader<BillingData> billingDataTableReader,
                       ItemProcessor<BillingData, ReportingData> billingDataProcessor,
-                      ItemWriter<ReportingData> billingDataFileWriter) {
-        return new StepBuilder("reportGeneration", jobRepository)
-                .<BillingData, ReportingData>chunk(100, transactionManager)
+                      ItemStreamWriter<ReportingData> billingDataFileWriter,
+                      ItemWriter<BillingData> chunkPricingWriter,
+                      AsyncItemProcessor<BillingData, ReportingData> asyncBillingDataProcessor,
+                      AsyncItemWriter<ReportingData> asyncBillingDataFileWriter,
+                      AdaptiveCompletionPolicy reportCompletionPolicy) {
+        if (asyncReport) {
+            // no fault tolerance, like the other report steps: the rate card lookups retry by themselves
+            return new StepBuilder("reportGeneration", jobRepository)
+                    .<BillingData, Future<ReportingData>>chunk(reportCompletionPolicy, transactionManager)
+                    .reader(billingDataTableReader)
+                    .processor(asyncBillingDataProcessor)
+                    .writer(asyncBillingDataFileWriter)
+                    .listener((ChunkListener) reportCompletionPolicy)
+                    .listener((StepExecutionListener) reportCompletionPolicy)
+                    .build();
+        }
+        if ("chunk".equalsIgnoreCase(reportPricing)) {
+            // no ItemProcessor: the whole chunk is priced at once by the writer
+            return multiThreaded(adaptive(new StepBuilder("reportGeneration", jobRepository)
+                    .<BillingData, BillingData>chunk(reportCompletionPolicy, transactionManager)
+                    .reader(billingDataTableReader)
+                    .writer(chunkPricingWriter)
+                    .faultTolerant(), reportCompletionPolicy), reportThreads, reportStepTaskExecutor());
+        }
+        return multiThreaded(adaptive(new StepBuilder("reportGeneration", jobRepository)
+                .<BillingData, ReportingData>chunk(reportCompletionPolicy, transactionManager)
+                .reader(billingDataTableReader)
+                .processor(billingDataProcessor)
+                .writer(threadSafe(billingDataFileWriter))
+                .faultTolerant(), reportCompletionPolicy), reportThreads, reportStepTaskExecutor());
+    }
+
+    // one scan of the month for the report of spending.threshold and the reports of spring.cellular.report.tiers
+    @Bean
+    public Step tieredStep3(JobRepository jobRepository, JdbcTransactionManager transactionManager,
+                            ItemReader<BillingData> billingDataTableReader,
+                            ItemProcessor<BillingData, ReportingData> tieredBillingDataProcessor,
+                            ItemStreamWriter<ReportingData> tieredReportWriter,
+                            AdaptiveCompletionPolicy reportCompletionPolicy) {
+        return multiThreaded(adaptive(new StepBuilder("tieredReportGeneration", jobRepository)
+                .<BillingData, ReportingData>chunk(reportCompletionPolicy, transactionManager)
                 .reader(billingDataTableReader)
+                .processor(tieredBillingDataProcessor)
+                .writer(tieredReportWriter)
+                .faultTolerant(), reportCompletionPolicy), reportThreads, reportStepTaskExecutor());
+    }
+
+    // the completion policy listens to the chunks, rollbacks, retries and skips of the step to resize the chunks
+    static <I, O> FaultTolerantStepBuilder<I, O> adaptive(FaultTolerantStepBuilder<I, O> stepBuilder,
+                                                           AdaptiveCompletionPolicy completionPolicy) {
+        stepBuilder.listener((ChunkListener) completionPolicy);
+        stepBuilder.listener((StepExecutionListener) completionPolicy);
+        stepBuilder.listener((SkipListener<Object, Object>) completionPolicy);
+        stepBuilder.listener((RetryListener) completionPolicy);
+        return stepBuilder;
+    }
+
+    @SuppressWarnings("removal")
+    private <I, O> Step multiThreaded(FaultTolerantStepBuilder<I, O> stepBuilder, int threads,
+                                      TaskExecutor taskExecutor) {
+        if (threads > 1) {
+            // the repeat template still caps the concurrent chunks at 4 unless the throttle limit is raised
+            stepBuilder.taskExecutor(taskExecutor)
+                    .throttleLimit(threads);
+        }
+        return stepBuilder.build();
+    }
+
+    // the FlatFileItemWriter isn't thread safe, so the writes of the consumer threads are serialized
+    private ItemStreamWriter<ReportingData> threadSafe(ItemStreamWriter<ReportingData> writer) {
+        return threadSafe(writer, reportThreads);
+    }
+
+    private ItemStreamWriter<ReportingData> threadSafe(ItemStreamWriter<ReportingData> writer, int threads) {
+        if (threads <= 1) {
+            return writer;
+        }
+        // the readers of the multi-threaded steps don't save their state, a restart writes the whole report again
+        if (writer instanceof FlatFileItemWriter<ReportingData> flatFileItemWriter) {
+            flatFileItemWriter.setSaveState(false);
+        } else if (writer instanceof BlockFileItemWriter<ReportingData> blockFileItemWriter) {
+            blockFileItemWriter.setSaveState(false);
+        }
+        return new SynchronizedItemStreamWriterBuilder<ReportingData>()
+                .delegate(writer)
+                .build();
+    }
+
+    // manager step: splits the month in ACCOUNT_ID ranges and runs one reportGenerationWorker per range in parallel
+    @Bean
+    public Step partitionedStep3(JobRepository jobRepository, Step reportGenerationWorkerStep,
+                                 AccountRangePartitioner accountRangePartitioner, TaskExecutor reportTaskExecutor) {
+        return new StepBuilder("partitionedReportGeneration", jobRepository)
+                .partitioner(reportGenerationWorkerStep.getName(), accountRangePartitioner)
+                .step(reportGenerationWorkerStep)
+                .gridSize(reportGridSize)
+                .taskExecutor(reportTaskExecutor)
+                .build();
+    }
+
+    @Bean
+    public Step reportGenerationWorkerStep(JobRepository jobRepository, JdbcTransactionManager transactionManager,
+                                           ItemReader<BillingData> billingDataPartitionTableReader,
+                                           ItemProcessor<BillingData, ReportingData> billingDataProcessor,
+                                           ItemWriter<ReportingData> billingDataPartitionFileWriter,
+                                           AdaptiveCompletionPolicy reportCompletionPolicy) {
+        return adaptive(new StepBuilder("reportGenerationWorker", jobRepository)
+                .<BillingData, ReportingData>chunk(reportCompletionPolicy, transactionManager)
+                .reader(billingDataPartitionTableReader)
                 .processor(billingDataProcessor)
-                .writer(billingDataFileWriter)
-                .faultTolerant()
-                .retry(PricingException.class)
-                .retryLimit(100)
+                .writer(billingDataPartitionFileWriter)
+                .faultTolerant(), reportCompletionPolicy)
+                .build();
+    }
+
+    // concatenates the partition reports into output.file, in account order
+    @Bean
+    public Step reportMergeStep(JobRepository jobRepository, JdbcTransactionManager transactionManager,
+                                ReportMergeTasklet reportMergeTasklet) {
+        return new StepBuilder("reportMerge", jobRepository)
+                .tasklet(reportMergeTasklet, transactionManager)
                 .build();
     }
 
     @Bean
     @StepScope
-    public FlatFileItemReader<BillingData> billingDataFileReader(@Value("#{jobParameters['input.file']}") String inputFile) {
+    public AccountRangePartitioner accountRangePartitioner(
+            @Value("#{jobParameters['data.year']}") Integer year,
+            @Value("#{jobParameters['data.month']}") Integer month,
+            @Value("#{jobParameters['output.file']}") String outputFile,
+            @Value("#{jobParameters['report.grid.size']}") Integer gridSize) {
+        return new AccountRangePartitioner(jdbcTemplate, year, month, outputFile, gridSize);
+    }
+
+    @Bean
+    @StepScope
+    public ReportMergeTasklet reportMergeTasklet(@Value("#{jobParameters['output.file']}") String outputFile,
+                                                 JobExplorer jobExplorer) {
+        return new ReportMergeTasklet(outputFile, jobExplorer::getJobExecutions);
+    }
+
+    @Bean
+    public TaskExecutor reportTaskExecutor() {
+        return taskExecutors.create("reportGeneration-", reportGridSize);
+    }
+
+    /*
+     * Bounded executor of the async report: it holds at most one chunk and, when it is full, the step thread prices
+     * the item itself (or waits, with virtual threads), so the reader can't get ahead of the pricing by more than a
+     * chunk (the AsyncItemWriter waits for all the futures of the chunk before writing it).
+     */
+    @Bean
+    public TaskExecutor reportPricingTaskExecutor() {
+        return taskExecutors.createBounded("reportPricing-", asyncReportThreads, 100);
+    }
+
+    @Bean
+    public TaskExecutor reportStepTaskExecutor() {
+        return taskExecutors.create("reportGenerationThread-", reportThreads);
+    }
+
+    @Bean
+    @StepScope
+    public ItemStreamReader<BillingData> billingDataFileReader(
+            @Value("#{jobParameters['input.file']}") String inputFile,
+            @Value("#{jobParameters['input.compression']}") String inputCompression) {
+        ItemStreamReader<BillingData> reader = fileReader("billingDataFileReader", inputFile,
+                Compression.of(inputFile, inputCompression), ingestionThreads <= 1);
+        if (ingestionThreads <= 1) {
+            return reader;
+        }
+        // the lines are read one at a time, the chunks are written in parallel (restarts read the file again)
+        return new SynchronizedItemStreamReaderBuilder<BillingData>()
+                .delegate(reader)
+                .build();
+    }
+
+    private ItemStreamReader<BillingData> fileReader(String name, String inputFile, Compression compression,
+                                                     boolean saveState) {
+        // a compressed file can't be mapped, it is always decompressed on the fly by a FlatFileItemReader
+        if (isMappedIngestionReader() && !compression.isCompressed()) {
+            MappedBillingDataFileReader mappedReader = new MappedBillingDataFileReader(name, inputFile);
+            mappedReader.setSaveState(saveState);
+            return mappedReader;
+        }
         return new FlatFileItemReaderBuilder<BillingData>()
-                .name("billingDataFileReader")
-                .resource(new FileSystemResource(inputFile)) // specifying the file's path in the system
-                .delimited() // telling the reader that the input file is expected to be delimited
-                .names("dataYear", "dataMonth", "accountId", "phoneNumber", "dataUsage", "callDuration", "smsCount")
-                // specifying the columns order
-                .targetType(BillingData.class)
+                .name(name)
+                .resource(compression.isCompressed()
+                        ? new CompressedFileResource(inputFile, compression)
+                        : new FileSystemResource(inputFile)) // specifying the file's path in the system
+                // maps the "dataYear,dataMonth,accountId,phoneNumber,dataUsage,callDuration,smsCount" columns
+                // straight into the record, instead of .delimited().names(...).targetType(BillingData.class)
+                .lineMapper(new BillingDataLineMapper())
+                .saveState(saveState)
                 .build();
     }
 
+    // a restart reads the whole file again, the rows written by the failed execution are unchanged by then
+    @Bean
+    @StepScope
+    public BillingDataDeltaReader billingDataDeltaReader(
+            @Value("#{jobParameters['input.file']}") String inputFile,
+            @Value("#{jobParameters['input.compression']}") String inputCompression,
+            @Value("#{jobParameters['data.year']}") Integer year,
+            @Value("#{jobParameters['data.month']}") Integer month) {
+        requireMonth(year, month);
+        ItemStreamReader<BillingData> reader = fileReader("billingDataFileReader", inputFile,
+                Compression.of(inputFile, inputCompression), false);
+        return new BillingDataDeltaReader(reader, jdbcTemplate, year, month);
+    }
+
+    private static void requireMonth(Integer year, Integer month) {
+        if (Objects.isNull(year) || Objects.isNull(month)) {
+            throw new IllegalStateException("Incremental ingestion requires the data.year and data.month parameters");
+        }
+    }
+
+    @Bean
+    @StepScope
+    public ItemStreamReader<BillingData> billingDataPartitionFileReader(
+            @Value("#{stepExecutionContext['input.file']}") String inputFile,
+            @Value("#{stepExecutionContext['start.offset']}") Long startOffset,
+            @Value("#{stepExecutionContext['end.offset']}") Long endOffset) {
+        if (isMappedIngestionReader()) {
+            return new MappedBillingDataFileReader("billingDataPartitionFileReader", inputFile, startOffset, endOffset);
+        }
+        return new FlatFileItemReaderBuilder<BillingData>()
+                .name("billingDataPartitionFileReader")
+                .resource(new FileRangeResource(inputFile, startOffset, endOffset)) // only the lines of this partition
+                .lineMapper(new BillingDataLineMapper())
+                .build();
+    }
+
+    // "flatfile" (FlatFileItemReader) or "mapped" (memory mapped file, restarts at the saved byte offset)
+    private boolean isMappedIngestionReader() {
+        return "mapped".equalsIgnoreCase(ingestionReader);
+    }
+
     @Bean
     public JdbcBatchItemWriter<BillingData> billingDataTableWriter(DataSource dataSource) {
         String sql = "INSERT INTO BILLING_DATA VALUES (:dataYear, :dataMonth, :accountId, :phoneNumber, " +
@@ -133,38 +901,313 @@ public class BillingJobConfig {
                 .build();
     }
 
+    @Bean
+    public BillingDataCopyItemWriter billingDataCopyWriter(DataSource dataSource) {
+        return new BillingDataCopyItemWriter(dataSource);
+    }
+
+    // "jdbc" (batched INSERTs) or "copy" (PostgreSQL COPY FROM STDIN)
+    @Bean
+    public ItemWriter<BillingData> billingDataIngestionWriter(JdbcBatchItemWriter<BillingData> billingDataTableWriter,
+                                                              BillingDataCopyItemWriter billingDataCopyWriter) {
+        return "copy".equalsIgnoreCase(ingestionWriter) ? billingDataCopyWriter : billingDataTableWriter;
+    }
+
+    /*
+     * With more than one consumer thread the state of the reader is meaningless for a restart (the chunks are
+     * committed out of order), so it isn't saved: a failed run of the step starts the month from the beginning.
+     */
     @Bean
     @StepScope
-    public JdbcCursorItemReader<BillingData> billingDataTableReader(
+    public ItemStreamReader<BillingData> billingDataTableReader(
             DataSource dataSource,
             @Value("#{jobParameters['data.year']}") Integer year,
-            @Value("#{jobParameters['data.month']}") Integer month) {
-        String sql = String.format("SELECT * FROM BILLING_DATA WHERE DATA_YEAR = %d AND DATA_MONTH = %d",
+            @Value("#{jobParameters['data.month']}") Integer month) throws Exception {
+        if ("paging".equalsIgnoreCase(reportReader)) {
+            return billingDataPagingReader(dataSource, year, month);
+        }
+        JdbcCursorItemReader<BillingData> reader = cursorReader("billingDataTableReader", dataSource,
+                "SELECT * FROM BILLING_DATA WHERE " + monthCondition(), monthParameters(year, month));
+        if (reportThreads <= 1) {
+            return reader;
+        }
+        reader.setSaveState(false);
+        return new SynchronizedItemStreamReaderBuilder<BillingData>()
+                .delegate(reader)
+                .build();
+    }
+
+    /*
+     * Keyset pagination over the BILLING_DATA_KEYSET_IDX index: every page is a short query that starts after the
+     * (DATA_YEAR, DATA_MONTH, ACCOUNT_ID, PHONE_NUMBER) of the last row of the previous page, so no connection (and
+     * no snapshot blocking the vacuum) is held between the chunks. The reader is thread safe, the pages are fetched
+     * one at a time. The key must be unique within the month, rows with a duplicated key at a page boundary would be
+     * skipped: BILLING_DATA doesn't enforce it (a month ingested twice without the partitioned storage has every key
+     * twice), so the reader isn't created when the month has a duplicated key.
+     */
+    private JdbcPagingItemReader<BillingData> billingDataPagingReader(DataSource dataSource, Integer year,
+                                                                      Integer month) throws Exception {
+        requireUniqueKeys(year, month);
+        Map<String, Order> sortKeys = new LinkedHashMap<>();
+        sortKeys.put("DATA_YEAR", Order.ASCENDING);
+        sortKeys.put("DATA_MONTH", Order.ASCENDING);
+        sortKeys.put("ACCOUNT_ID", Order.ASCENDING);
+        sortKeys.put("PHONE_NUMBER", Order.ASCENDING);
+
+        // picks the PostgreSQL (or H2, in the benchmarks) paging query from the metadata of the data source
+        SqlPagingQueryProviderFactoryBean queryProvider = new SqlPagingQueryProviderFactoryBean();
+        queryProvider.setDataSource(dataSource);
+        queryProvider.setSelectClause("SELECT DATA_YEAR, DATA_MONTH, ACCOUNT_ID, PHONE_NUMBER, DATA_USAGE, " +
+                "CALL_DURATION, SMS_COUNT");
+        queryProvider.setFromClause("FROM BILLING_DATA");
+        queryProvider.setWhereClause(monthCondition());
+        queryProvider.setSortKeys(sortKeys);
+
+        return new JdbcPagingItemReaderBuilder<BillingData>()
+                .name("billingDataTableReader")
+                .dataSource(dataSource)
+                .queryProvider(queryProvider.getObject())
+                .parameterValues(monthParameters(year, month))
+                .pageSize(reportPageSize)
+                .rowMapper(new DataClassRowMapper<>(BillingData.class))
+                .saveState(reportThreads <= 1)
+                .build();
+    }
+
+    // one aggregate over the BILLING_DATA_KEYSET_IDX index, stopped at the first duplicated key
+    private void requireUniqueKeys(Integer year, Integer month) {
+        List<String> duplicates = jdbcTemplate.query("SELECT ACCOUNT_ID, PHONE_NUMBER FROM BILLING_DATA" +
+                        " WHERE DATA_YEAR = ? AND DATA_MONTH = ? GROUP BY ACCOUNT_ID, PHONE_NUMBER" +
+                        " HAVING COUNT(*) > 1 LIMIT 1",
+                (resultSet, rowNum) -> resultSet.getInt("ACCOUNT_ID") + ", " + resultSet.getString("PHONE_NUMBER"),
                 year, month);
+        if (!duplicates.isEmpty()) {
+            throw new IllegalStateException("The paging report reader requires a unique (ACCOUNT_ID, PHONE_NUMBER) " +
+                    "within the month, " + year + "-" + month + " has more than one row of (" + duplicates.get(0) +
+                    "): use spring.cellular.report.reader=cursor");
+        }
+    }
+
+    @Bean
+    @StepScope
+    public JdbcCursorItemReader<BillingData> billingDataPartitionTableReader(
+            DataSource dataSource,
+            @Value("#{jobParameters['data.year']}") Integer year,
+            @Value("#{jobParameters['data.month']}") Integer month,
+            @Value("#{stepExecutionContext['minAccountId']}") Long minAccountId,
+            @Value("#{stepExecutionContext['maxAccountId']}") Long maxAccountId) {
+        String sql = "SELECT * FROM BILLING_DATA WHERE " + monthCondition() +
+                " AND ACCOUNT_ID BETWEEN :minAccountId AND :maxAccountId ORDER BY ACCOUNT_ID";
+        Map<String, Object> parameters = monthParameters(year, month);
+        parameters.put("minAccountId", minAccountId);
+        parameters.put("maxAccountId", maxAccountId);
+        return cursorReader("billingDataPartitionTableReader", dataSource, sql, parameters);
+    }
+
+    // rows of the month recorded in BILLING_DATA_DELTA, the report patch is written again on a restart
+    @Bean
+    @StepScope
+    public JdbcCursorItemReader<BillingData> billingDataDeltaTableReader(
+            DataSource dataSource,
+            @Value("#{jobParameters['data.year']}") Integer year,
+            @Value("#{jobParameters['data.month']}") Integer month) {
+        String sql = "SELECT * FROM BILLING_DATA WHERE " + monthCondition() + " AND EXISTS (SELECT 1 FROM " +
+                "BILLING_DATA_DELTA D WHERE D.DATA_YEAR = BILLING_DATA.DATA_YEAR AND D.DATA_MONTH = " +
+                "BILLING_DATA.DATA_MONTH AND D.ACCOUNT_ID = BILLING_DATA.ACCOUNT_ID AND D.PHONE_NUMBER = " +
+                "BILLING_DATA.PHONE_NUMBER)";
+        JdbcCursorItemReader<BillingData> reader = cursorReader("billingDataDeltaTableReader", dataSource, sql,
+                monthParameters(year, month));
+        reader.setSaveState(false);
+        return reader;
+    }
+
+    // the JdbcCursorItemReader only takes positional arguments, so the named parameters are expanded here
+    private JdbcCursorItemReader<BillingData> cursorReader(String name, DataSource dataSource, String sql,
+                                                           Map<String, Object> parameters) {
+        ParsedSql parsedSql = NamedParameterUtils.parseSqlStatement(sql);
+        MapSqlParameterSource parameterSource = new MapSqlParameterSource(parameters);
         return new JdbcCursorItemReaderBuilder<BillingData>()
-                .name("billingDataTableReader")
+                .name(name)
                 .dataSource(dataSource)
-                .sql(sql)
+                .sql(NamedParameterUtils.substituteNamedParameters(parsedSql, parameterSource))
+                .queryArguments(NamedParameterUtils.buildValueArray(parsedSql, parameterSource, null))
                 .rowMapper(new DataClassRowMapper<>(BillingData.class))
                 .build();
     }
 
+    /*
+     * Rows of the month. With the pushdown enabled, the billing total is also computed by the database (with the
+     * rates of the current rate card) and only the rows that can reach the spending threshold are returned. The
+     * threshold is lowered by a small margin, because the database doesn't use the float arithmetic of the processor,
+     * which still applies the exact threshold, so the report is the same with or without the pushdown.
+     */
+    private String monthCondition() {
+        String condition = "DATA_YEAR = :year AND DATA_MONTH = :month";
+        if (reportPushdown) {
+            // typed parameters: untyped ones are bound as the type of the column (INTEGER for CALL_DURATION in H2)
+            condition += " AND DATA_USAGE * CAST(:dataPricing AS DOUBLE PRECISION)" +
+                    " + CALL_DURATION * CAST(:callPricing AS DOUBLE PRECISION)" +
+                    " + SMS_COUNT * CAST(:smsPricing AS DOUBLE PRECISION) >= CAST(:threshold AS DOUBLE PRECISION)";
+        }
+        return condition;
+    }
+
+    // lowest spending threshold of the reports, the tiers included
+    private float reportThreshold() {
+        float threshold = spendingThreshold;
+        for (float tier : reportTiers) {
+            threshold = Math.min(threshold, tier);
+        }
+        return threshold;
+    }
+
+    private Map<String, Object> monthParameters(Integer year, Integer month) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("year", year);
+        parameters.put("month", month);
+        if (reportPushdown) {
+            RateCard rateCard = pricingSnapshotService.getRateCard();
+            parameters.put("dataPricing", (double) rateCard.dataPricing());
+            parameters.put("callPricing", (double) rateCard.callPricing());
+            parameters.put("smsPricing", (double) rateCard.smsPricing());
+            float threshold = reportThreshold();
+            parameters.put("threshold", threshold - Math.abs(threshold) * PUSHDOWN_THRESHOLD_MARGIN);
+        }
+        return parameters;
+    }
+
+    // step scoped, so each step (or partition) prices all its items with the same rate card snapshot
     @Bean
+    @StepScope
     public BillingDataProcessor billingDataProcessor() {
-        return new BillingDataProcessor(pricingService);
+        return new BillingDataProcessor(pricingSnapshotService, spendingThreshold);
     }
 
+    // prices every row once for all the tiers, the TieredReportItemWriter filters the items of each report
     @Bean
     @StepScope
-    public FlatFileItemWriter<ReportingData> billingDataFileWriter(
-            @Value("#{jobParameters['output.file']}") String outputFile) {
-        return new FlatFileItemWriterBuilder<ReportingData>()
-                .resource(new FileSystemResource(outputFile))
-                .name("billingDataFileWriter")
-                .delimited()
-                .names("billingData.dataYear", "billingData.dataMonth", "billingData.accountId", "billingData.phoneNumber",
-                        "billingData.dataUsage", "billingData.callDuration", "billingData.smsCount", "billingTotal")
-                .build();
+    public BillingDataProcessor tieredBillingDataProcessor() {
+        return new BillingDataProcessor(pricingSnapshotService, reportThreshold());
+    }
+
+    // the step scope of the processor is propagated to the threads of the executor by the AsyncItemProcessor
+    @Bean
+    public AsyncItemProcessor<BillingData, ReportingData> asyncBillingDataProcessor(
+            BillingDataProcessor billingDataProcessor, TaskExecutor reportPricingTaskExecutor) {
+        AsyncItemProcessor<BillingData, ReportingData> asyncItemProcessor = new AsyncItemProcessor<>();
+        asyncItemProcessor.setDelegate(billingDataProcessor);
+        asyncItemProcessor.setTaskExecutor(reportPricingTaskExecutor);
+        return asyncItemProcessor;
+    }
+
+    // filtered items (null results) are dropped before the delegate is called
+    @Bean
+    public AsyncItemWriter<ReportingData> asyncBillingDataFileWriter(
+            ItemStreamWriter<ReportingData> billingDataFileWriter) {
+        AsyncItemWriter<ReportingData> asyncItemWriter = new AsyncItemWriter<>();
+        asyncItemWriter.setDelegate(billingDataFileWriter);
+        return asyncItemWriter;
+    }
+
+    @Bean
+    @StepScope
+    public ChunkPricingItemWriter chunkPricingWriter(ItemStreamWriter<ReportingData> billingDataFileWriter) {
+        return new ChunkPricingItemWriter(pricingSnapshotService, spendingThreshold, threadSafe(billingDataFileWriter));
+    }
+
+    // the report of the fused step is written by the consumer threads of the ingestion
+    @Bean
+    @StepScope
+    public PricingItemWriter fusedPricingWriter(BillingDataProcessor billingDataProcessor,
+                                                ItemStreamWriter<ReportingData> billingDataFileWriter) {
+        return new PricingItemWriter(billingDataProcessor, threadSafe(billingDataFileWriter, ingestionThreads));
+    }
+
+    @Bean
+    @StepScope
+    public ItemStreamWriter<ReportingData> billingDataFileWriter(
+            @Value("#{jobParameters['output.file']}") String outputFile,
+            @Value("#{jobParameters['output.compression']}") String outputCompression,
+            @Value("#{jobParameters['output.format']}") String outputFormat) {
+        return reportFileWriter("billingDataFileWriter", outputFile, outputFormat,
+                Compression.of(outputFile, outputCompression));
+    }
+
+    // the report of spending.threshold is output.file, the report of each tier is named after it (tierFile)
+    @Bean
+    @StepScope
+    public TieredReportItemWriter tieredReportWriter(
+            @Value("#{jobParameters['output.file']}") String outputFile,
+            @Value("#{jobParameters['output.compression']}") String outputCompression,
+            @Value("#{jobParameters['output.format']}") String outputFormat) {
+        Compression compression = Compression.of(outputFile, outputCompression);
+        TreeMap<Float, ItemStreamWriter<ReportingData>> writers = new TreeMap<>();
+        writers.put(spendingThreshold, threadSafe(reportFileWriter("billingDataFileWriter", outputFile, outputFormat,
+                compression)));
+        for (float tier : reportTiers) {
+            if (!writers.containsKey(tier)) {
+                writers.put(tier, threadSafe(reportFileWriter("billingDataFileWriter-" + tier,
+                        TieredReportItemWriter.tierFile(outputFile, tier), outputFormat, compression)));
+            }
+        }
+        float[] thresholds = new float[writers.size()];
+        int index = 0;
+        for (float threshold : writers.keySet()) {
+            thresholds[index++] = threshold;
+        }
+        return new TieredReportItemWriter(thresholds, new ArrayList<>(writers.values()));
+    }
+
+    // the partition files are compressed like the report, so the merged report is a valid sequence of members (frames)
+    @Bean
+    @StepScope
+    public ItemStreamWriter<ReportingData> billingDataPartitionFileWriter(
+            @Value("#{stepExecutionContext['output.file']}") String outputFile,
+            @Value("#{jobParameters['output.file']}") String reportFile,
+            @Value("#{jobParameters['output.compression']}") String outputCompression,
+            @Value("#{jobParameters['output.format']}") String outputFormat) {
+        return reportFileWriter("billingDataPartitionFileWriter", outputFile, outputFormat,
+                Compression.of(reportFile, outputCompression));
+    }
+
+    @Bean
+    public ItemWriter<BillingDataChange> billingDataDeltaWriter() {
+        return new BillingDataDeltaItemWriter(jdbcTemplate);
+    }
+
+    // the lines of the changed rows are replaced in the CSV report, the other formats are only written as a whole
+    @Bean
+    @StepScope
+    public ReportPatchItemWriter reportPatchWriter(
+            @Value("#{jobParameters['data.year']}") Integer year,
+            @Value("#{jobParameters['data.month']}") Integer month,
+            @Value("#{jobParameters['output.file']}") String outputFile,
+            @Value("#{jobParameters['output.compression']}") String outputCompression,
+            @Value("#{jobParameters['output.format']}") String outputFormat) {
+        if ("columnar".equalsIgnoreCase(outputFormat) || Compression.of(outputFile, outputCompression).isCompressed()) {
+            throw new IllegalStateException("Incremental ingestion requires an uncompressed CSV report: " + outputFile);
+        }
+        return new ReportPatchItemWriter(jdbcTemplate, year, month, outputFile);
+    }
+
+    /*
+     * output.format job parameter: "csv" (default) or "columnar" (ColumnarReportFormat, already compact, so it isn't
+     * compressed). The CSV report is compressed with "gzip" or "zstd" as the output.compression job parameter, or
+     * when the report file ends with .gz or .zst.
+     */
+    private ItemStreamWriter<ReportingData> reportFileWriter(String name, String outputFile, String outputFormat,
+                                                             Compression compression) {
+        if ("columnar".equalsIgnoreCase(outputFormat)) {
+            return new ColumnarReportItemWriter(name, outputFile);
+        }
+        if (compression.isCompressed()) {
+            return new CompressedFileItemWriter<>(name, outputFile, compression, new ReportingDataLineAggregator());
+        }
+        // same lines as .delimited().names("billingData.dataYear", ..., "billingTotal"), without the reflection
+        ReportingDataFileItemWriter writer = new ReportingDataFileItemWriter();
+        writer.setName(name);
+        writer.setResource(new FileSystemResource(outputFile));
+        return writer;
     }
 
 }
@@ -0,0 +1,85 @@
+package br.com.gabezy.billingjob.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/*
+ * Creates the TaskExecutors of the job (launcher, multi-threaded and partitioned steps, async pricing), all of the
+ * same type:
+ * - PLATFORM: a pool of platform threads per executor, with at most spring.cellular.executor.pool-size threads
+ * - VIRTUAL: a new virtual thread per task (Java 21+)
+ * In both types the concurrency of each executor is limited by its own property, so a step that mostly waits (e.g. the
+ * pricing lookups) can't take all the threads, nor all the database connections, from the others.
+ *
+ * The executors are returned to @Bean methods, which initialize and shut down the pools. The platform threads are
+ * daemon threads, like the virtual ones: the idle threads of a pool don't keep the application alive once the job run
+ * at the startup (which the main thread waits for) is finished.
+ */
+@Component
+public class BillingTaskExecutors {
+
+    public enum ExecutorType {
+        PLATFORM,
+        VIRTUAL
+    }
+
+    private final ExecutorType type;
+    private final int poolSize;
+
+    public BillingTaskExecutors(@Value("${spring.cellular.executor.type:PLATFORM}") ExecutorType type,
+                                @Value("${spring.cellular.executor.pool-size:8}") int poolSize) {
+        if (type == ExecutorType.VIRTUAL && Runtime.version().feature() < 21) {
+            throw new IllegalStateException("spring.cellular.executor.type=VIRTUAL requires Java 21, running on " +
+                    Runtime.version());
+        }
+        this.type = type;
+        this.poolSize = poolSize;
+    }
+
+    public AsyncTaskExecutor create(String threadNamePrefix, int concurrencyLimit) {
+        if (type == ExecutorType.VIRTUAL) {
+            SimpleAsyncTaskExecutor taskExecutor = new SimpleAsyncTaskExecutor(threadNamePrefix);
+            taskExecutor.setVirtualThreads(true);
+            taskExecutor.setConcurrencyLimit(concurrencyLimit);
+            return taskExecutor;
+        }
+        int threads = concurrency(concurrencyLimit);
+        ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+        taskExecutor.setThreadNamePrefix(threadNamePrefix);
+        taskExecutor.setDaemon(true);
+        taskExecutor.setCorePoolSize(threads);
+        taskExecutor.setMaxPoolSize(threads);
+        return taskExecutor;
+    }
+
+    // tasks run at once by an executor created with this limit: the pools of platform threads are also capped by pool-size
+    public int concurrency(int concurrencyLimit) {
+        if (type == ExecutorType.VIRTUAL) {
+            return concurrencyLimit;
+        }
+        return Math.max(1, Math.min(concurrencyLimit, poolSize));
+    }
+
+    /*
+     * Executor that applies back-pressure to the submitting thread: with PLATFORM threads, the task runs on the
+     * submitting thread when the queue is full; with VIRTUAL threads, the submitting thread waits for a free slot.
+     */
+    public TaskExecutor createBounded(String threadNamePrefix, int concurrencyLimit, int queueCapacity) {
+        TaskExecutor taskExecutor = create(threadNamePrefix, concurrencyLimit);
+        if (taskExecutor instanceof ThreadPoolTaskExecutor pool) {
+            pool.setQueueCapacity(queueCapacity);
+            pool.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+        return taskExecutor;
+    }
+
+    public ExecutorType getType() {
+        return type;
+    }
+}
@@ -0,0 +1,90 @@
+package br.com.gabezy.billingjob.config;
+
+import br.com.gabezy.billingjob.domain.BillingData;
+import br.com.gabezy.billingjob.domain.ReportingData;
+import br.com.gabezy.billingjob.partitioners.AccountRangePartitioner;
+import br.com.gabezy.billingjob.policies.AdaptiveCompletionPolicy;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.integration.config.annotation.EnableBatchIntegration;
+import org.springframework.batch.integration.partition.RemotePartitioningManagerStepBuilderFactory;
+import org.springframework.batch.integration.partition.RemotePartitioningWorkerStepBuilderFactory;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.integration.channel.ExecutorChannel;
+import org.springframework.jdbc.support.JdbcTransactionManager;
+
+import java.time.Duration;
+
+/*
+ * Remote partitioning of the report generation: the manager step (remotePartitionedReportGeneration) splits the month
+ * in ACCOUNT_ID ranges and sends one StepExecutionRequest per range to the reportWorkerRequests channel. The workers
+ * run the remoteReportGenerationWorker step (BillingDataProcessor + partition report writer) for the range they receive
+ * and save its status in the job repository, which is polled by the manager. The partition files are merged by the
+ * reportMerge step, like in the local partitioned report.
+ *
+ * The channel is an in-JVM ExecutorChannel, each of its threads acting as a worker. To spread the partitions across
+ * JVMs, the channel is bridged to a broker (JMS / AMQP outbound adapter on the manager, inbound adapter feeding the
+ * same channel on the workers), all of them sharing the job repository database.
+ */
+@Configuration
+@EnableBatchIntegration
+public class RemotePartitioningConfig {
+
+    public static final String WORKER_STEP_NAME = "remoteReportGenerationWorker";
+
+    @Value("${spring.cellular.report.grid-size:4}")
+    private int reportGridSize;
+
+    @Value("${spring.cellular.report.remote.workers:4}")
+    private int remoteWorkers;
+
+    @Value("${spring.cellular.report.remote.poll-interval:PT1S}")
+    private Duration pollInterval;
+
+    @Bean
+    public TaskExecutor reportWorkerTaskExecutor(BillingTaskExecutors taskExecutors) {
+        return taskExecutors.create("reportWorker-", remoteWorkers);
+    }
+
+    @Bean
+    public ExecutorChannel reportWorkerRequests(TaskExecutor reportWorkerTaskExecutor) {
+        return new ExecutorChannel(reportWorkerTaskExecutor);
+    }
+
+    // manager step: the workers don't reply, the manager polls the job repository until all the partitions are done
+    @Bean
+    public Step remotePartitionedStep3(RemotePartitioningManagerStepBuilderFactory managerStepBuilderFactory,
+                                       AccountRangePartitioner accountRangePartitioner,
+                                       ExecutorChannel reportWorkerRequests) {
+        return managerStepBuilderFactory.get("remotePartitionedReportGeneration")
+                .partitioner(WORKER_STEP_NAME, accountRangePartitioner)
+                .gridSize(reportGridSize)
+                .outputChannel(reportWorkerRequests)
+                .pollInterval(pollInterval.toMillis())
+                .build();
+    }
+
+    // the worker step is looked up by its name when a request arrives, so the bean name must be the step name
+    @Bean(WORKER_STEP_NAME)
+    public Step remoteReportGenerationWorkerStep(RemotePartitioningWorkerStepBuilderFactory workerStepBuilderFactory,
+                                                 JdbcTransactionManager transactionManager,
+                                                 ExecutorChannel reportWorkerRequests,
+                                                 ItemReader<BillingData> billingDataPartitionTableReader,
+                                                 ItemProcessor<BillingData, ReportingData> billingDataProcessor,
+                                                 ItemWriter<ReportingData> billingDataPartitionFileWriter,
+                                                 AdaptiveCompletionPolicy reportCompletionPolicy) {
+        return BillingJobConfig.adaptive(workerStepBuilderFactory.get(WORKER_STEP_NAME)
+                .inputChannel(reportWorkerRequests)
+                .<BillingData, ReportingData>chunk(reportCompletionPolicy, transactionManager)
+                .reader(billingDataPartitionTableReader)
+                .processor(billingDataProcessor)
+                .writer(billingDataPartitionFileWriter)
+                .faultTolerant(), reportCompletionPolicy)
+                .build();
+    }
+}
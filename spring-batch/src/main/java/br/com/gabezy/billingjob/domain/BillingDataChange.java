@@ -0,0 +1,47 @@
+package br.com.gabezy.billingjob.domain;
+
+// a row of the month that was added, changed or removed since the last ingestion, with the fingerprint of its values
+public record BillingDataChange(Type type, BillingData billingData, long fingerprint) {
+
+    public enum Type {
+        ADDED, CHANGED, REMOVED
+    }
+
+    // identifies a row within the month
+    public record Key(int accountId, String phoneNumber) {
+
+        public static Key of(BillingData billingData) {
+            return new Key(billingData.accountId(), billingData.phoneNumber());
+        }
+    }
+
+    public Key key() {
+        return Key.of(billingData);
+    }
+
+    // 64 bit FNV-1a over the seven fields, followed by the murmur3 finalizer to spread the bits
+    public static long fingerprint(BillingData billingData) {
+        long hash = 0xcbf29ce484222325L;
+        hash = combine(hash, billingData.dataYear());
+        hash = combine(hash, billingData.dataMonth());
+        hash = combine(hash, billingData.accountId());
+        String phoneNumber = billingData.phoneNumber();
+        for (int i = 0; i < phoneNumber.length(); i++) {
+            hash = combine(hash, phoneNumber.charAt(i));
+        }
+        hash = combine(hash, Float.floatToIntBits(billingData.dataUsage()));
+        hash = combine(hash, billingData.callDuration());
+        hash = combine(hash, billingData.smsCount());
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static long combine(long hash, int value) {
+        return (hash ^ value) * 0x100000001b3L;
+    }
+}
@@ -0,0 +1,14 @@
+package br.com.gabezy.billingjob.domain;
+
+// immutable snapshot of the prices used to compute the billing total of a BillingData
+public record RateCard(float dataPricing, float callPricing, float smsPricing) {
+
+    // same float arithmetic used since the beginning of the job, so the totals in the reports don't change
+    public double billingTotal(BillingData item) {
+        return billingTotal(item.dataUsage(), item.callDuration(), item.smsCount());
+    }
+
+    public double billingTotal(float dataUsage, int callDuration, int smsCount) {
+        return dataUsage * dataPricing + callDuration * callPricing + smsCount * smsPricing;
+    }
+}
@@ -1,40 +1,189 @@
 package br.com.gabezy.billingjob.listeners;
 
 import br.com.gabezy.billingjob.domain.BillingData;
+import br.com.gabezy.billingjob.partitioners.BillingFilePartitioner;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ExitStatus;
 import org.springframework.batch.core.SkipListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
 import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 
-public class BillingDataSkipListener implements SkipListener<BillingData, BillingData> {
+/*
+ * Writes the lines skipped by the reader to the skip file ("lineNumber|rawLine") and, optionally, to the
+ * BILLING_DATA_QUARANTINE table.
+ *
+ * The skipped lines of a chunk are buffered in its transaction: they are inserted in the quarantine table with a
+ * single batch before the commit, and appended to the skip file with a single write after the commit. The file is
+ * opened once per step (and closed at the end of the step), and is never forced to disk, so a file with thousands of
+ * bad lines costs one write per chunk instead of an open / append / close per line.
+ *
+ * The skip file is optional (e.g. a job launched without the skip.file parameter, with the quarantine table): without
+ * it the skipped lines are only counted in the log.
+ */
+public class BillingDataSkipListener implements SkipListener<BillingData, BillingData>, StepExecutionListener {
 
-    private final Path skippedItemsFile;
     private static final Logger log = LoggerFactory.getLogger(BillingDataSkipListener.class);
+    private static final int MAX_COLUMN_LENGTH = 2500;
+
+    private final String skippedItemsFile;
+    private final JdbcTemplate quarantineJdbcTemplate;
+
+    private FileChannel channel;
+    private Long jobExecutionId;
+    private String partitionFile;
+    private long startOffset;
+    private long lineOffset;
 
     public BillingDataSkipListener(String skippedItemsFile) {
-        this.skippedItemsFile = Paths.get(skippedItemsFile);
+        this(skippedItemsFile, null);
+    }
+
+    // with a JdbcTemplate, the skipped lines are also inserted in BILLING_DATA_QUARANTINE
+    public BillingDataSkipListener(String skippedItemsFile, JdbcTemplate quarantineJdbcTemplate) {
+        this.skippedItemsFile = skippedItemsFile;
+        this.quarantineJdbcTemplate = quarantineJdbcTemplate;
+    }
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        this.jobExecutionId = stepExecution.getJobExecutionId();
+        // the readers of a file partition count the lines from the start of the partition, the lines before it are
+        // only counted at the first skip (-1 until then)
+        this.partitionFile = stepExecution.getExecutionContext().getString(BillingFilePartitioner.INPUT_FILE_KEY, null);
+        this.startOffset = stepExecution.getExecutionContext().getLong(BillingFilePartitioner.START_OFFSET_KEY, 0L);
+        this.lineOffset = startOffset > 0 ? -1 : 0;
+    }
+
+    @Override
+    public synchronized ExitStatus afterStep(StepExecution stepExecution) {
+        if (Objects.nonNull(channel)) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Unable to close the skip file: {}", skippedItemsFile, e);
+            }
+            channel = null;
+        }
+        return null;
     }
 
     @Override
     public void onSkipInRead(Throwable t) {
         if (t instanceof FlatFileParseException exception) {
-            String rawLine = exception.getInput();
-            int lineNumber = exception.getLineNumber();
-            String skippedLine = lineNumber + "|" + rawLine + System.lineSeparator();
+            SkippedLine skippedLine = new SkippedLine(lineOffset() + exception.getLineNumber(), exception.getInput(),
+                    exception.getMessage());
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                chunkSkips().lines.add(skippedLine);
+            } else {
+                insert(List.of(skippedLine));
+                append(List.of(skippedLine));
+            }
+        }
+    }
 
+    private synchronized long lineOffset() {
+        if (lineOffset < 0) {
             try {
-                Files.writeString(this.skippedItemsFile, skippedLine, StandardOpenOption.APPEND, StandardOpenOption.CREATE);
+                lineOffset = BillingFilePartitioner.countLines(Paths.get(partitionFile), startOffset);
             } catch (IOException e) {
-                log.error("Unable to write skipped line: {} - in path: {}", skippedLine, this.skippedItemsFile);
-                throw new RuntimeException("Unable to write skipped line");
+                throw new UncheckedIOException("Unable to count the lines before the partition of " + partitionFile,
+                        e);
             }
+        }
+        return lineOffset;
+    }
+
+    // one buffer per chunk transaction, so the threads of a multi-threaded step don't share their buffers
+    private ChunkSkips chunkSkips() {
+        ChunkSkips chunkSkips = (ChunkSkips) TransactionSynchronizationManager.getResource(this);
+        if (Objects.isNull(chunkSkips)) {
+            chunkSkips = new ChunkSkips();
+            TransactionSynchronizationManager.bindResource(this, chunkSkips);
+            TransactionSynchronizationManager.registerSynchronization(chunkSkips);
+        }
+        return chunkSkips;
+    }
 
+    private void insert(List<SkippedLine> skippedLines) {
+        if (Objects.isNull(quarantineJdbcTemplate)) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(skippedLines.size());
+        for (SkippedLine skippedLine : skippedLines) {
+            rows.add(new Object[]{jobExecutionId, skippedLine.lineNumber(), truncate(skippedLine.input()),
+                    truncate(skippedLine.error())});
+        }
+        quarantineJdbcTemplate.batchUpdate("INSERT INTO BILLING_DATA_QUARANTINE (JOB_EXECUTION_ID, LINE_NUMBER, " +
+                "RAW_LINE, ERROR_MESSAGE) VALUES (?, ?, ?, ?)", rows);
+    }
+
+    private synchronized void append(List<SkippedLine> skippedLines) {
+        if (Objects.isNull(skippedItemsFile)) {
+            log.warn("{} lines skipped, no skip file to write them", skippedLines.size());
+            return;
+        }
+        StringBuilder lines = new StringBuilder(skippedLines.size() * 80);
+        for (SkippedLine skippedLine : skippedLines) {
+            lines.append(skippedLine.lineNumber()).append('|').append(skippedLine.input())
+                    .append(System.lineSeparator());
+        }
+        try {
+            if (Objects.isNull(channel)) {
+                channel = FileChannel.open(Paths.get(skippedItemsFile), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            log.error("Unable to write {} skipped lines in path: {}", skippedLines.size(), skippedItemsFile);
+            throw new UncheckedIOException("Unable to write skipped lines", e);
+        }
+    }
+
+    private static String truncate(String value) {
+        if (Objects.isNull(value) || value.length() <= MAX_COLUMN_LENGTH) {
+            return value;
+        }
+        return value.substring(0, MAX_COLUMN_LENGTH);
+    }
+
+    private record SkippedLine(long lineNumber, String input, String error) {
+    }
+
+    private class ChunkSkips implements TransactionSynchronization {
+
+        private final List<SkippedLine> lines = new ArrayList<>();
+
+        // in the chunk transaction: the quarantined lines are committed (or rolled back) with the chunk
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            insert(lines);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(BillingDataSkipListener.this);
+            if (status == STATUS_COMMITTED) {
+                append(lines);
+            }
         }
     }
 }
@@ -0,0 +1,184 @@
+package br.com.gabezy.billingjob.mappers;
+
+import br.com.gabezy.billingjob.domain.BillingData;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.batch.item.file.LineMapper;
+import org.springframework.batch.item.file.mapping.RecordFieldSetMapper;
+import org.springframework.batch.item.file.transform.DelimitedLineTokenizer;
+
+/*
+ * Maps a "dataYear,dataMonth,accountId,phoneNumber,dataUsage,callDuration,smsCount" line straight into a
+ * BillingData, without the FieldSet and the reflection used by the delimited() builder. Only the phoneNumber
+ * becomes a String, the numbers are parsed directly from the characters of the line.
+ *
+ * Lines with quoted fields are rare in the billing files, so they are delegated to the regular tokenizer/mapper.
+ */
+public class BillingDataLineMapper implements LineMapper<BillingData> {
+
+    private static final char DELIMITER = ',';
+    private static final char QUOTE = '"';
+    private static final int FIELDS_COUNT = 7;
+
+    // 10^0 .. 10^10 are exact in a float (5^10 < 2^24)
+    private static final float[] FLOAT_POWERS_OF_TEN = {
+            1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+    private static final long MAX_EXACT_FLOAT_MANTISSA = 1L << 24;
+
+    private final DelimitedLineTokenizer quotedLineTokenizer = new DelimitedLineTokenizer();
+    private final RecordFieldSetMapper<BillingData> quotedLineMapper = new RecordFieldSetMapper<>(BillingData.class);
+
+    public BillingDataLineMapper() {
+        quotedLineTokenizer.setNames("dataYear", "dataMonth", "accountId", "phoneNumber", "dataUsage",
+                "callDuration", "smsCount");
+    }
+
+    @Override
+    public BillingData mapLine(String line, int lineNumber) {
+        return map(line, lineNumber);
+    }
+
+    public BillingData map(CharSequence line, int lineNumber) {
+        int[] bounds = new int[FIELDS_COUNT + 1];
+        int fields = 0;
+        bounds[0] = 0;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == DELIMITER) {
+                if (++fields == FIELDS_COUNT) {
+                    throw parseError("Too many fields", line, lineNumber, null);
+                }
+                bounds[fields] = i + 1;
+            } else if (c == QUOTE) {
+                return mapQuotedLine(line, lineNumber);
+            }
+        }
+        if (fields != FIELDS_COUNT - 1) {
+            throw parseError("Expected " + FIELDS_COUNT + " fields but found " + (fields + 1), line, lineNumber, null);
+        }
+        bounds[FIELDS_COUNT] = line.length() + 1;
+
+        try {
+            return new BillingData(
+                    parseInt(line, bounds[0], bounds[1] - 1),
+                    parseInt(line, bounds[1], bounds[2] - 1),
+                    parseInt(line, bounds[2], bounds[3] - 1),
+                    line.subSequence(bounds[3], bounds[4] - 1).toString(),
+                    parseFloat(line, bounds[4], bounds[5] - 1),
+                    parseInt(line, bounds[5], bounds[6] - 1),
+                    parseInt(line, bounds[6], bounds[7] - 1));
+        } catch (NumberFormatException e) {
+            throw parseError(e.getMessage(), line, lineNumber, e);
+        }
+    }
+
+    private BillingData mapQuotedLine(CharSequence line, int lineNumber) {
+        try {
+            return quotedLineMapper.mapFieldSet(quotedLineTokenizer.tokenize(line.toString()));
+        } catch (RuntimeException e) {
+            throw parseError(e.getMessage(), line, lineNumber, e);
+        }
+    }
+
+    static int parseInt(CharSequence text, int start, int end) {
+        start = skipLeadingSpaces(text, start, end);
+        end = skipTrailingSpaces(text, start, end);
+        if (start == end) {
+            throw new NumberFormatException("Empty number");
+        }
+
+        boolean negative = false;
+        char first = text.charAt(start);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++start == end) {
+                throw new NumberFormatException("Invalid number: " + text.subSequence(start - 1, end));
+            }
+        }
+
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Invalid number: " + text.subSequence(start, end));
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw new NumberFormatException("Number out of range: " + text.subSequence(start, end));
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Number out of range: " + text.subSequence(start, end));
+        }
+        return (int) value;
+    }
+
+    // plain decimals (like 24.40) are parsed without a String, anything else falls back to Float.parseFloat
+    static float parseFloat(CharSequence text, int start, int end) {
+        start = skipLeadingSpaces(text, start, end);
+        end = skipTrailingSpaces(text, start, end);
+        if (start == end) {
+            throw new NumberFormatException("Empty number");
+        }
+
+        int i = start;
+        boolean negative = false;
+        char first = text.charAt(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = -1;
+        for (; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (scale >= 0) {
+                    scale++;
+                }
+                if (mantissa > MAX_EXACT_FLOAT_MANTISSA) {
+                    return Float.parseFloat(text.subSequence(start, end).toString());
+                }
+            } else if (c == '.' && scale < 0) {
+                scale = 0;
+            } else {
+                return Float.parseFloat(text.subSequence(start, end).toString());
+            }
+        }
+
+        if (digits == 0 || scale >= FLOAT_POWERS_OF_TEN.length) {
+            return Float.parseFloat(text.subSequence(start, end).toString());
+        }
+        // both operands are exact floats, so the division gives the same (correctly rounded) result as parseFloat
+        float value = scale > 0 ? (float) mantissa / FLOAT_POWERS_OF_TEN[scale] : (float) mantissa;
+        return negative ? -value : value;
+    }
+
+    private static int skipLeadingSpaces(CharSequence text, int start, int end) {
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        return start;
+    }
+
+    private static int skipTrailingSpaces(CharSequence text, int start, int end) {
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        return end;
+    }
+
+    private FlatFileParseException parseError(String message, CharSequence line, int lineNumber, Throwable cause) {
+        String input = line.toString();
+        String description = "Parsing error at line: " + lineNumber + ", input=[" + input + "]: " + message;
+        return cause == null
+                ? new FlatFileParseException(description, input, lineNumber)
+                : new FlatFileParseException(description, cause, input, lineNumber);
+    }
+}
@@ -0,0 +1,92 @@
+package br.com.gabezy.billingjob.partitioners;
+
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/*
+ * Splits the billing data of a month in ACCOUNT_ID ranges of the same width, between the lowest and the highest
+ * account of the month. Each partition writes its own report file, named after the final report with a zero padded
+ * partition suffix, so the files can be merged back in account order.
+ *
+ * The grid size of the step can be overridden per run (report.grid.size job parameter), so a run can be split in as
+ * many partitions as there are workers available for it.
+ */
+public class AccountRangePartitioner implements Partitioner {
+
+    public static final String MIN_ACCOUNT_ID_KEY = "minAccountId";
+    public static final String MAX_ACCOUNT_ID_KEY = "maxAccountId";
+    public static final String OUTPUT_FILE_KEY = "output.file";
+    public static final String PARTITION_FILE_SUFFIX = ".part-";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int year;
+    private final int month;
+    private final String outputFile;
+    private final Integer gridSize;
+
+    public AccountRangePartitioner(JdbcTemplate jdbcTemplate, int year, int month, String outputFile) {
+        this(jdbcTemplate, year, month, outputFile, null);
+    }
+
+    public AccountRangePartitioner(JdbcTemplate jdbcTemplate, int year, int month, String outputFile,
+                                   Integer gridSize) {
+        if (Objects.nonNull(gridSize) && gridSize < 1) {
+            throw new IllegalArgumentException("Invalid grid size: " + gridSize);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.year = year;
+        this.month = month;
+        this.outputFile = outputFile;
+        this.gridSize = gridSize;
+    }
+
+    public static String partitionFile(String outputFile, int partition) {
+        return outputFile + PARTITION_FILE_SUFFIX + String.format("%04d", partition);
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        if (Objects.nonNull(this.gridSize)) {
+            gridSize = this.gridSize;
+        }
+        Map<String, ExecutionContext> partitions = new LinkedHashMap<>();
+
+        long[] bounds = jdbcTemplate.queryForObject(
+                "SELECT MIN(ACCOUNT_ID), MAX(ACCOUNT_ID) FROM BILLING_DATA WHERE DATA_YEAR = ? AND DATA_MONTH = ?",
+                (rs, rowNum) -> rs.getObject(1) == null ? null : new long[]{rs.getLong(1), rs.getLong(2)},
+                year, month);
+
+        if (Objects.isNull(bounds)) {
+            // empty month, a single partition keeps the report file being created
+            partitions.put("partition0", partitionContext(0, 0, -1));
+            return partitions;
+        }
+
+        long min = bounds[0];
+        long max = bounds[1];
+        int partitionsCount = (int) Math.max(1, Math.min(gridSize, max - min + 1));
+        long width = (max - min + 1) / partitionsCount;
+        long remainder = (max - min + 1) % partitionsCount;
+
+        long start = min;
+        for (int i = 0; i < partitionsCount; i++) {
+            long end = start + width - 1 + (i < remainder ? 1 : 0);
+            partitions.put("partition" + i, partitionContext(i, start, end));
+            start = end + 1;
+        }
+        return partitions;
+    }
+
+    private ExecutionContext partitionContext(int partition, long minAccountId, long maxAccountId) {
+        ExecutionContext context = new ExecutionContext();
+        context.putLong(MIN_ACCOUNT_ID_KEY, minAccountId);
+        context.putLong(MAX_ACCOUNT_ID_KEY, maxAccountId);
+        context.putString(OUTPUT_FILE_KEY, partitionFile(outputFile, partition));
+        return context;
+    }
+}
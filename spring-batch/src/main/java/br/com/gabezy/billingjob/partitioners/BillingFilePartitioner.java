@@ -0,0 +1,119 @@
+package br.com.gabezy.billingjob.partitioners;
+
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Splits the input file in byte ranges of roughly the same size. Each range boundary is moved forward to the
+ * beginning of the next line, so every line belongs to exactly one partition.
+ *
+ * Only byte offsets are computed here, the manager doesn't read the file. The lines before a range, needed to turn
+ * the line numbers of a partition into line numbers of the file, are counted by the worker (countLines) and only when
+ * it needs them, e.g. for its first skipped line.
+ */
+public class BillingFilePartitioner implements Partitioner {
+
+    public static final String INPUT_FILE_KEY = "input.file";
+    public static final String START_OFFSET_KEY = "start.offset";
+    public static final String END_OFFSET_KEY = "end.offset";
+
+    private static final int SCAN_BUFFER_SIZE = 8 * 1024;
+    private static final int COUNT_BUFFER_SIZE = 1024 * 1024;
+
+    private final Path inputFile;
+
+    public BillingFilePartitioner(String inputFile) {
+        this.inputFile = Paths.get(inputFile);
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        Map<String, ExecutionContext> partitions = new LinkedHashMap<>();
+
+        try (FileChannel channel = FileChannel.open(inputFile, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            int partitionsCount = Math.max(1, gridSize);
+            long start = 0;
+
+            for (int i = 0; i < partitionsCount && start < fileSize; i++) {
+                long end = i == partitionsCount - 1
+                        ? fileSize
+                        : nextLineStart(channel, Math.max(start, fileSize * (i + 1) / partitionsCount), fileSize);
+
+                if (end > start) {
+                    ExecutionContext context = new ExecutionContext();
+                    context.putString(INPUT_FILE_KEY, inputFile.toString());
+                    context.putLong(START_OFFSET_KEY, start);
+                    context.putLong(END_OFFSET_KEY, end);
+                    partitions.put("partition" + i, context);
+                }
+                start = end;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to partition file: " + inputFile, e);
+        }
+
+        return partitions;
+    }
+
+    // number of lines before the given offset (a range start), read by the worker of the range
+    public static long countLines(Path file, long to) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return countLines(channel, 0, to);
+        }
+    }
+
+    // number of '\n' in [from, to)
+    private static long countLines(FileChannel channel, long from, long to) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(COUNT_BUFFER_SIZE);
+        long lines = 0;
+        long current = from;
+
+        while (current < to) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), to - current));
+            int read = channel.read(buffer, current);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    lines++;
+                }
+            }
+            current += read;
+        }
+        return lines;
+    }
+
+    // returns the offset right after the first '\n' found at or after the given position
+    private long nextLineStart(FileChannel channel, long position, long fileSize) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long current = position;
+
+        while (current < fileSize) {
+            buffer.clear();
+            int read = channel.read(buffer, current);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return current + i + 1;
+                }
+            }
+            current += read;
+        }
+        return fileSize;
+    }
+}
@@ -0,0 +1,138 @@
+package br.com.gabezy.billingjob.policies;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.SkipListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.repeat.policy.SimpleCompletionPolicy;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.RetryListener;
+
+import java.time.Duration;
+
+/*
+ * Chunk size that adapts to the cost of the commits: after each chunk, the size is doubled when the chunk took less
+ * than half of the target latency, halved when it took more than the target, and halved after a rollback, a retry or a
+ * skip (a smaller chunk means less work to redo and a shorter item by item scan to find a bad item). The size always
+ * stays between the min and max sizes.
+ *
+ * The current size is stored in the step execution context (adaptive.chunk.size), so it can be seen in
+ * BATCH_STEP_EXECUTION_CONTEXT and a restarted step starts with the size of the failed execution.
+ */
+public class AdaptiveCompletionPolicy extends SimpleCompletionPolicy
+        implements ChunkListener, StepExecutionListener, SkipListener<Object, Object>, RetryListener {
+
+    public static final String CHUNK_SIZE_KEY = "adaptive.chunk.size";
+
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveCompletionPolicy.class);
+    private static final String CHUNK_START_ATTRIBUTE = "adaptive.chunk.start";
+
+    private final int minSize;
+    private final int maxSize;
+    private final long targetLatencyNanos;
+    private final boolean adaptive;
+
+    private volatile int size;
+    // set by the retry and skip callbacks, consumed at the end of the chunk
+    private volatile boolean failures;
+
+    // fixed chunk size
+    public AdaptiveCompletionPolicy(int size) {
+        this(size, size, size, Duration.ZERO, false);
+    }
+
+    public AdaptiveCompletionPolicy(int initialSize, int minSize, int maxSize, Duration targetLatency) {
+        this(initialSize, minSize, maxSize, targetLatency, true);
+    }
+
+    private AdaptiveCompletionPolicy(int initialSize, int minSize, int maxSize, Duration targetLatency,
+                                     boolean adaptive) {
+        if (minSize < 1 || maxSize < minSize) {
+            throw new IllegalArgumentException("Invalid chunk size range: [" + minSize + ", " + maxSize + "]");
+        }
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.targetLatencyNanos = targetLatency.toNanos();
+        this.adaptive = adaptive;
+        resize(initialSize);
+    }
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        if (stepExecution.getExecutionContext().containsKey(CHUNK_SIZE_KEY)) {
+            resize(stepExecution.getExecutionContext().getInt(CHUNK_SIZE_KEY));
+        }
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        return null;
+    }
+
+    @Override
+    public void beforeChunk(ChunkContext context) {
+        context.setAttribute(CHUNK_START_ATTRIBUTE, System.nanoTime());
+    }
+
+    @Override
+    public void afterChunk(ChunkContext context) {
+        if (adaptive) {
+            Long start = (Long) context.getAttribute(CHUNK_START_ATTRIBUTE);
+            long latency = start == null ? targetLatencyNanos : System.nanoTime() - start;
+            if (failures || latency > targetLatencyNanos) {
+                resize(size / 2);
+            } else if (latency < targetLatencyNanos / 2) {
+                resize(size * 2);
+            }
+            failures = false;
+        }
+        context.getStepContext().getStepExecution().getExecutionContext().putInt(CHUNK_SIZE_KEY, size);
+    }
+
+    @Override
+    public void afterChunkError(ChunkContext context) {
+        if (adaptive) {
+            resize(size / 2);
+            failures = false;
+        }
+    }
+
+    @Override
+    public void onSkipInRead(Throwable t) {
+        failures = true;
+    }
+
+    @Override
+    public void onSkipInWrite(Object item, Throwable t) {
+        failures = true;
+    }
+
+    @Override
+    public void onSkipInProcess(Object item, Throwable t) {
+        failures = true;
+    }
+
+    @Override
+    public <T, E extends Throwable> void onError(RetryContext context, RetryCallback<T, E> callback,
+                                                 Throwable throwable) {
+        failures = true;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    private void resize(int newSize) {
+        int bounded = Math.max(minSize, Math.min(maxSize, newSize));
+        if (bounded != size) {
+            log.debug("Chunk size: {} -> {}", size, bounded);
+        }
+        this.size = bounded;
+        setChunkSize(bounded);
+    }
+}
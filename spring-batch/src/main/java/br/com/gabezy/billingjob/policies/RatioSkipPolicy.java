@@ -0,0 +1,54 @@
+package br.com.gabezy.billingjob.policies;
+
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.core.step.skip.SkipLimitExceededException;
+import org.springframework.batch.core.step.skip.SkipPolicy;
+import org.springframework.batch.item.file.FlatFileParseException;
+
+import java.util.Objects;
+
+/*
+ * Skips the lines that can't be parsed while they are at most a ratio of the lines read by the step (e.g. 0.01 for 1%
+ * of the lines), so a large file isn't failed by a handful of bad lines and a file of garbage is still failed early.
+ * The limit is never lower than minSkips, so the first lines of a file can be skipped too; with a ratio of 0 this is
+ * the skipLimit(minSkips) of the steps.
+ *
+ * The lines read are taken from the step execution of the current thread, which is updated at every commit.
+ */
+public class RatioSkipPolicy implements SkipPolicy {
+
+    private final long minSkips;
+    private final double ratio;
+
+    public RatioSkipPolicy(long minSkips, double ratio) {
+        if (minSkips < 0 || ratio < 0 || ratio > 1) {
+            throw new IllegalArgumentException("Invalid skip limits: min " + minSkips + ", ratio " + ratio);
+        }
+        this.minSkips = minSkips;
+        this.ratio = ratio;
+    }
+
+    @Override
+    public boolean shouldSkip(Throwable t, long skipCount) throws SkipLimitExceededException {
+        if (!(t instanceof FlatFileParseException)) {
+            return false;
+        }
+        long limit = limit();
+        if (skipCount < limit) {
+            return true;
+        }
+        throw new SkipLimitExceededException(limit, t);
+    }
+
+    private long limit() {
+        StepContext context = StepSynchronizationManager.getContext();
+        if (Objects.isNull(context)) {
+            return minSkips;
+        }
+        StepExecution stepExecution = context.getStepExecution();
+        long lines = stepExecution.getReadCount() + stepExecution.getReadSkipCount();
+        return Math.max(minSkips, (long) (lines * ratio));
+    }
+}
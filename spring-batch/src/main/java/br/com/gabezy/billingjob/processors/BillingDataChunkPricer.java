@@ -0,0 +1,71 @@
+package br.com.gabezy.billingjob.processors;
+
+import br.com.gabezy.billingjob.domain.BillingData;
+import br.com.gabezy.billingjob.domain.RateCard;
+import br.com.gabezy.billingjob.domain.ReportingData;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Prices a whole chunk at once: the usage columns are copied to primitive arrays and the totals are computed in a
+ * single loop without objects or calls, which the JIT compiler can unroll and vectorize. Only the items reaching the
+ * spending threshold become ReportingData.
+ *
+ * The totals are computed with the same float arithmetic of RateCard.billingTotal, so the result is the same of the
+ * BillingDataProcessor.
+ */
+public class BillingDataChunkPricer {
+
+    private final RateCard rateCard;
+    private final float spendingThreshold;
+
+    public BillingDataChunkPricer(RateCard rateCard, float spendingThreshold) {
+        this.rateCard = rateCard;
+        this.spendingThreshold = spendingThreshold;
+    }
+
+    public List<ReportingData> price(List<? extends BillingData> items) {
+        int size = items.size();
+        float[] dataUsage = new float[size];
+        int[] callDuration = new int[size];
+        int[] smsCount = new int[size];
+        for (int i = 0; i < size; i++) {
+            BillingData item = items.get(i);
+            dataUsage[i] = item.dataUsage();
+            callDuration[i] = item.callDuration();
+            smsCount[i] = item.smsCount();
+        }
+
+        float[] totals = new float[size];
+        int[] reportable = new int[size];
+        int reportableCount = computeTotals(dataUsage, callDuration, smsCount, totals, reportable);
+
+        List<ReportingData> reportingData = new ArrayList<>(reportableCount);
+        for (int i = 0; i < reportableCount; i++) {
+            int index = reportable[i];
+            reportingData.add(new ReportingData(items.get(index), totals[index]));
+        }
+        return reportingData;
+    }
+
+    // computes every total and the indexes of the reportable ones, returning how many they are
+    public int computeTotals(float[] dataUsage, int[] callDuration, int[] smsCount, float[] totals, int[] reportable) {
+        float dataPricing = rateCard.dataPricing();
+        float callPricing = rateCard.callPricing();
+        float smsPricing = rateCard.smsPricing();
+        float threshold = spendingThreshold;
+
+        for (int i = 0; i < totals.length; i++) {
+            totals[i] = dataUsage[i] * dataPricing + callDuration[i] * callPricing + smsCount[i] * smsPricing;
+        }
+
+        // branch free compaction of the indexes reaching the threshold
+        int reportableCount = 0;
+        for (int i = 0; i < totals.length; i++) {
+            reportable[reportableCount] = i;
+            reportableCount += totals[i] >= threshold ? 1 : 0;
+        }
+        return reportableCount;
+    }
+}
@@ -1,17 +1,32 @@
 package br.com.gabezy.billingjob.processors;
 
 import br.com.gabezy.billingjob.domain.BillingData;
+import br.com.gabezy.billingjob.domain.RateCard;
 import br.com.gabezy.billingjob.domain.ReportingData;
-import br.com.gabezy.billingjob.services.PricingService;
+import br.com.gabezy.billingjob.services.PricingSnapshotService;
 import org.springframework.batch.item.ItemProcessor;
-import org.springframework.beans.factory.annotation.Value;
+
+import java.util.Objects;
 
 public class BillingDataProcessor implements ItemProcessor<BillingData, ReportingData> {
 
-    private final PricingService pricingService;
+    private final PricingSnapshotService pricingSnapshotService;
+    private final float spendingThreshold;
+
+    // resolved once, on the first item, and used for every item priced by this processor
+    private volatile RateCard rateCard;
+
+    // the lowest threshold of the report(s) written by the step
+    public BillingDataProcessor(PricingSnapshotService pricingSnapshotService, float spendingThreshold) {
+        this.pricingSnapshotService = pricingSnapshotService;
+        this.spendingThreshold = spendingThreshold;
+    }
 
-    public BillingDataProcessor(PricingService pricingService) {
-        this.pricingService = pricingService;
+    // fixed prices and threshold, used when the processor isn't created by Spring (e.g. benchmarks)
+    public BillingDataProcessor(RateCard rateCard, float spendingThreshold) {
+        this.pricingSnapshotService = null;
+        this.rateCard = rateCard;
+        this.spendingThreshold = spendingThreshold;
     }
 
 //    @Value("${spring.cellular.pricing.data:0.01}")
@@ -23,18 +38,22 @@ public class BillingDataProcessor implements ItemProcessor<BillingData, Reportin
 //    @Value("${spring.cellular.pricing.sms:0.1}")
 //    private float smsPricing;
 
-    @Value("${spring.cellular.spending.threshold:150}")
-    private float spendingThreshold;
-
     @Override
     public ReportingData process(BillingData item) {
 //        double billingTotal = item.dataUsage() * dataPricing + item.callDuration() * callPricing + item.smsCount() * smsPricing;
-        double billingTotal = item.dataUsage() * pricingService.getDataPricing() +
-                item.callDuration() * pricingService.getCallPricing() +
-                item.smsCount() * pricingService.getSmsPricing();
+        double billingTotal = getRateCard().billingTotal(item);
         if (billingTotal < spendingThreshold) {
             return null;
         }
         return new ReportingData(item, billingTotal);
     }
+
+    private RateCard getRateCard() {
+        RateCard current = this.rateCard;
+        if (Objects.isNull(current)) {
+            current = pricingSnapshotService.getRateCard();
+            this.rateCard = current;
+        }
+        return current;
+    }
 }
@@ -0,0 +1,135 @@
+package br.com.gabezy.billingjob.readers;
+
+import br.com.gabezy.billingjob.domain.BillingData;
+import br.com.gabezy.billingjob.domain.BillingDataChange;
+import br.com.gabezy.billingjob.domain.BillingDataChange.Key;
+import br.com.gabezy.billingjob.domain.BillingDataChange.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Reads the billing file and returns only the rows that differ from the last ingestion of the month: the fingerprint
+ * of every line is compared with the one saved in BILLING_DATA_FINGERPRINT, unchanged lines are skipped, new and
+ * changed lines are returned as ADDED / CHANGED. Once the file is over, the saved rows that weren't found in the
+ * file are returned as REMOVED.
+ *
+ * The lines that can't be read (skipped by the step) may be rows of the month, so when there are any no row is
+ * returned as REMOVED: the rows not found in the file are kept, with their fingerprints, until a file without bad
+ * lines is ingested. A key found twice in the file is rejected, the fingerprints (and the report lines) are per key.
+ *
+ * The fingerprints of the month are loaded when the reader is opened. The delegate must not save its state: as the
+ * changes of the committed chunks are in BILLING_DATA_FINGERPRINT already, a restart reads the whole file again and
+ * only returns the rows that weren't written yet (and a removed row is only known after reading the whole file).
+ */
+public class BillingDataDeltaReader implements ItemStreamReader<BillingDataChange> {
+
+    private static final Logger log = LoggerFactory.getLogger(BillingDataDeltaReader.class);
+
+    private final ItemStreamReader<BillingData> delegate;
+    private final JdbcTemplate jdbcTemplate;
+    private final int year;
+    private final int month;
+
+    private Map<Key, Long> fingerprints;
+    private Set<Key> keys;
+    private Iterator<Key> removed;
+    private long unchanged;
+    private long unreadLines;
+
+    public BillingDataDeltaReader(ItemStreamReader<BillingData> delegate, JdbcTemplate jdbcTemplate, int year,
+                                  int month) {
+        this.delegate = delegate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.year = year;
+        this.month = month;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        Map<Key, Long> saved = new HashMap<>();
+        jdbcTemplate.query("SELECT ACCOUNT_ID, PHONE_NUMBER, FINGERPRINT FROM BILLING_DATA_FINGERPRINT " +
+                        "WHERE DATA_YEAR = ? AND DATA_MONTH = ?",
+                rs -> {
+                    saved.put(new Key(rs.getInt(1), rs.getString(2)), rs.getLong(3));
+                }, year, month);
+        fingerprints = saved;
+        keys = new HashSet<>(saved.size());
+        removed = null;
+        unchanged = 0;
+        unreadLines = 0;
+        log.info("Loaded {} fingerprints of {}-{}", fingerprints.size(), year, month);
+        delegate.open(executionContext);
+    }
+
+    @Override
+    public BillingDataChange read() throws Exception {
+        if (removed == null) {
+            BillingData item;
+            while ((item = readLine()) != null) {
+                Key key = Key.of(item);
+                if (!keys.add(key)) {
+                    throw new IllegalStateException("Account " + key.accountId() + " and phone number " +
+                            key.phoneNumber() + " found twice in the file, the incremental ingestion requires " +
+                            "one line per key (spring.cellular.ingestion.incremental=false ingests both lines)");
+                }
+                long fingerprint = BillingDataChange.fingerprint(item);
+                Long previous = fingerprints.remove(key);
+                if (previous == null) {
+                    return new BillingDataChange(Type.ADDED, item, fingerprint);
+                }
+                if (previous != fingerprint) {
+                    return new BillingDataChange(Type.CHANGED, item, fingerprint);
+                }
+                unchanged++;
+            }
+            if (unreadLines > 0) {
+                log.warn("{} lines couldn't be read, keeping the {} rows not found in the file", unreadLines,
+                        fingerprints.size());
+                fingerprints.clear();
+            }
+            log.info("{} unchanged rows, {} removed rows", unchanged, fingerprints.size());
+            keys = null;
+            removed = fingerprints.keySet().iterator();
+        }
+        if (removed.hasNext()) {
+            Key key = removed.next();
+            removed.remove();
+            return new BillingDataChange(Type.REMOVED,
+                    new BillingData(year, month, key.accountId(), key.phoneNumber(), 0, 0, 0), 0);
+        }
+        return null;
+    }
+
+    // counts the lines skipped by the step, they are read again (and skipped again) by a restart
+    private BillingData readLine() throws Exception {
+        try {
+            return delegate.read();
+        } catch (Exception e) {
+            unreadLines++;
+            throw e;
+        }
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        delegate.update(executionContext);
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        fingerprints = null;
+        keys = null;
+        removed = null;
+        delegate.close();
+    }
+}
@@ -0,0 +1,158 @@
+package br.com.gabezy.billingjob.readers;
+
+import br.com.gabezy.billingjob.columnar.ColumnarReportFormat;
+import br.com.gabezy.billingjob.columnar.ColumnarReportFormat.RowGroupStats;
+import br.com.gabezy.billingjob.domain.ReportingData;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/*
+ * Reads a report written by the ColumnarReportItemWriter (or the concatenation of several of them). The row groups
+ * rejected by the filter are skipped using only their statistics, e.g. the row groups without a billing total above
+ * some value. The offset of the next row group is saved in the execution context, a restart starts at the row group
+ * that wasn't completely read.
+ */
+public class ColumnarReportItemReader implements ItemStreamReader<ReportingData> {
+
+    private static final String OFFSET_KEY = "row.group.offset";
+    private static final String ROWS_READ_KEY = "row.group.rows.read";
+
+    private final String name;
+    private final Path inputFile;
+    private final Predicate<RowGroupStats> rowGroupFilter;
+
+    private FileChannel channel;
+    private long rowGroupOffset;
+    private long nextRowGroupOffset;
+    private Iterator<ReportingData> rows;
+    private int rowsRead;
+
+    public ColumnarReportItemReader(String name, String inputFile) {
+        this(name, inputFile, stats -> true);
+    }
+
+    public ColumnarReportItemReader(String name, String inputFile, Predicate<RowGroupStats> rowGroupFilter) {
+        this.name = name;
+        this.inputFile = Paths.get(inputFile);
+        this.rowGroupFilter = rowGroupFilter;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        try {
+            this.channel = FileChannel.open(inputFile, StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new ItemStreamException("Unable to open file: " + inputFile, e);
+        }
+        this.nextRowGroupOffset = executionContext.getLong(executionContextKey(OFFSET_KEY), 0L);
+        int skipRows = executionContext.getInt(executionContextKey(ROWS_READ_KEY), 0);
+        this.rows = null;
+        if (skipRows > 0) {
+            try {
+                for (int i = 0; i < skipRows; i++) {
+                    read();
+                }
+            } catch (Exception e) {
+                throw new ItemStreamException("Unable to restore the position of file: " + inputFile, e);
+            }
+        }
+    }
+
+    @Override
+    public ReportingData read() throws Exception {
+        while (Objects.isNull(rows) || !rows.hasNext()) {
+            if (!nextRowGroup()) {
+                return null;
+            }
+        }
+        rowsRead++;
+        return rows.next();
+    }
+
+    // same keys of the ItemStreamSupport ("<name>.<key>"), the contexts saved before stay valid for a restart
+    private String executionContextKey(String key) {
+        return name + "." + key;
+    }
+
+    private boolean nextRowGroup() throws IOException {
+        long offset = nextRowGroupOffset;
+        while (true) {
+            ByteBuffer magic = readFully(offset, Integer.BYTES);
+            if (Objects.isNull(magic)) {
+                return false;
+            }
+            if (magic.getInt() == ColumnarReportFormat.FILE_MAGIC) {
+                offset += ColumnarReportFormat.FILE_HEADER_SIZE; // header of the file (or of a concatenated file)
+                continue;
+            }
+            ByteBuffer header = readFully(offset, ColumnarReportFormat.ROW_GROUP_HEADER_SIZE);
+            if (Objects.isNull(header) || header.getInt() != ColumnarReportFormat.ROW_GROUP_MAGIC) {
+                throw new IOException("Invalid row group at offset " + offset + " of file " + inputFile);
+            }
+            int rowCount = header.getInt();
+            int bodyLength = header.getInt();
+            int checksum = header.getInt();
+            ByteBuffer body = readFully(offset + ColumnarReportFormat.ROW_GROUP_HEADER_SIZE, bodyLength);
+            if (Objects.isNull(body) || !ColumnarReportFormat.checksumMatches(body, checksum)) {
+                throw new IOException("Corrupted row group at offset " + offset + " of file " + inputFile);
+            }
+
+            rowGroupOffset = offset;
+            offset += ColumnarReportFormat.ROW_GROUP_HEADER_SIZE + bodyLength;
+            nextRowGroupOffset = offset;
+            rowsRead = 0;
+            if (rowGroupFilter.test(ColumnarReportFormat.decodeStats(rowCount, body))) {
+                rows = ColumnarReportFormat.decodeRowGroup(rowCount, body).rows().iterator();
+                return true;
+            }
+        }
+    }
+
+    // null at the end of the file
+    private ByteBuffer readFully(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                if (buffer.position() == 0) {
+                    return null;
+                }
+                throw new IOException("Truncated row group at offset " + position + " of file " + inputFile);
+            }
+        }
+        return buffer.flip();
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        boolean inRowGroup = Objects.nonNull(rows) && rows.hasNext();
+        executionContext.putLong(executionContextKey(OFFSET_KEY), inRowGroup ? rowGroupOffset : nextRowGroupOffset);
+        executionContext.putInt(executionContextKey(ROWS_READ_KEY), inRowGroup ? rowsRead : 0);
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        if (Objects.isNull(channel)) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new ItemStreamException("Unable to close file: " + inputFile, e);
+        } finally {
+            channel = null;
+        }
+    }
+}
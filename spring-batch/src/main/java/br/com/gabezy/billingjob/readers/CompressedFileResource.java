@@ -0,0 +1,50 @@
+package br.com.gabezy.billingjob.readers;
+
+import br.com.gabezy.billingjob.compression.Compression;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/*
+ * File resource decompressed on the fly, so a FlatFileItemReader reads a gzip or zstd file without decompressing it
+ * to the disk first. A restarted reader decompresses the file again from the beginning and skips the lines already
+ * read, as it does with a plain file.
+ */
+public class CompressedFileResource extends FileSystemResource {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Compression compression;
+
+    public CompressedFileResource(String path, Compression compression) {
+        super(path);
+        this.compression = compression;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return compression.decompress(new BufferedInputStream(super.getInputStream(), BUFFER_SIZE));
+    }
+
+    @Override
+    public String getDescription() {
+        return compression + " " + super.getDescription();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other || (other instanceof CompressedFileResource resource && super.equals(other) &&
+                compression == resource.compression);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + compression.hashCode();
+    }
+}
@@ -0,0 +1,116 @@
+package br.com.gabezy.billingjob.readers;
+
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * File resource that only exposes the bytes in [startOffset, endOffset), so a regular FlatFileItemReader can be
+ * used to read a single partition of a bigger file.
+ */
+public class FileRangeResource extends FileSystemResource {
+
+    private final long startOffset;
+    private final long endOffset;
+
+    public FileRangeResource(String path, long startOffset, long endOffset) {
+        super(path);
+        if (startOffset < 0 || endOffset < startOffset) {
+            throw new IllegalArgumentException("Invalid range [" + startOffset + ", " + endOffset + ") for file " + path);
+        }
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+    }
+
+    public long getStartOffset() {
+        return startOffset;
+    }
+
+    public long getEndOffset() {
+        return endOffset;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        FileChannel channel = FileChannel.open(getFile().toPath(), StandardOpenOption.READ);
+        channel.position(startOffset);
+        return new RangeInputStream(Channels.newInputStream(channel), endOffset - startOffset);
+    }
+
+    @Override
+    public long contentLength() {
+        return endOffset - startOffset;
+    }
+
+    @Override
+    public String getDescription() {
+        return "file range [" + startOffset + ", " + endOffset + ") of " + super.getDescription();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other || (other instanceof FileRangeResource range && super.equals(other) &&
+                startOffset == range.startOffset && endOffset == range.endOffset);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * super.hashCode() + Long.hashCode(startOffset)) + Long.hashCode(endOffset);
+    }
+
+    private static class RangeInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        RangeInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int value = super.read();
+            if (value >= 0) {
+                remaining--;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
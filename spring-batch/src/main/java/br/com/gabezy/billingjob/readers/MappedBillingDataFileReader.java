@@ -0,0 +1,213 @@
+package br.com.gabezy.billingjob.readers;
+
+import br.com.gabezy.billingjob.domain.BillingData;
+import br.com.gabezy.billingjob.mappers.BillingDataLineMapper;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * Reads the billing lines of a file (or of the byte range of a partition) through memory mapped windows of the file.
+ * The byte offset of the next line is saved in the execution context, so a restart maps the file directly at that
+ * offset instead of reading and skipping all the lines already processed.
+ *
+ * Like the FlatFileItemReader, this reader is not thread-safe.
+ */
+public class MappedBillingDataFileReader implements ItemStreamReader<BillingData> {
+
+    private static final String BYTE_OFFSET_KEY = "byte.offset";
+    private static final String LINE_NUMBER_KEY = "line.number";
+    private static final long DEFAULT_WINDOW_SIZE = 64L * 1024 * 1024;
+
+    private final String name;
+    private final Path inputFile;
+    private final long startOffset;
+    private final long requestedEndOffset;
+    private final long windowSize;
+    private final BillingDataLineMapper lineMapper = new BillingDataLineMapper();
+    private final AsciiLine line = new AsciiLine();
+
+    private FileChannel channel;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long endOffset;
+    private long position;
+    private int lineNumber;
+    private boolean saveState = true;
+
+    public MappedBillingDataFileReader(String name, String inputFile) {
+        this(name, inputFile, 0, -1);
+    }
+
+    // endOffset = -1 reads up to the end of the file
+    public MappedBillingDataFileReader(String name, String inputFile, long startOffset, long endOffset) {
+        this(name, inputFile, startOffset, endOffset, DEFAULT_WINDOW_SIZE);
+    }
+
+    MappedBillingDataFileReader(String name, String inputFile, long startOffset, long endOffset, long windowSize) {
+        this.name = name;
+        this.inputFile = Paths.get(inputFile);
+        this.startOffset = startOffset;
+        this.requestedEndOffset = endOffset;
+        this.windowSize = windowSize;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        try {
+            this.channel = FileChannel.open(inputFile, StandardOpenOption.READ);
+            this.endOffset = requestedEndOffset < 0 ? channel.size() : Math.min(requestedEndOffset, channel.size());
+        } catch (IOException e) {
+            throw new ItemStreamException("Unable to open file: " + inputFile, e);
+        }
+        this.position = startOffset;
+        this.lineNumber = 0;
+        if (saveState) {
+            this.position = executionContext.getLong(executionContextKey(BYTE_OFFSET_KEY), startOffset);
+            this.lineNumber = executionContext.getInt(executionContextKey(LINE_NUMBER_KEY), 0);
+        }
+        this.window = null;
+    }
+
+    @Override
+    public BillingData read() throws Exception {
+        if (position >= endOffset) {
+            return null;
+        }
+
+        long lineEnd = findLineEnd();
+        int length = (int) (lineEnd - position);
+        int offset = (int) (position - windowStart);
+        position = lineEnd < endOffset ? lineEnd + 1 : endOffset; // the line is consumed even if it can't be parsed
+        lineNumber++;
+
+        if (length > 0 && window.get(offset + length - 1) == '\r') {
+            length--;
+        }
+        line.reset(window, offset, length);
+        if (line.isAscii()) {
+            return lineMapper.map(line, lineNumber);
+        }
+        return lineMapper.map(line.decode(), lineNumber);
+    }
+
+    // offset of the '\n' ending the line that starts at the current position (or the end offset for the last line)
+    private long findLineEnd() throws IOException {
+        long size = windowSize;
+        while (true) {
+            if (window == null || position < windowStart || position >= windowStart + window.limit()) {
+                map(position, size);
+            }
+            for (int i = (int) (position - windowStart); i < window.limit(); i++) {
+                if (window.get(i) == '\n') {
+                    return windowStart + i;
+                }
+            }
+            if (windowStart + window.limit() >= endOffset) {
+                return endOffset;
+            }
+            // the line crosses the end of the window: map again starting at the line
+            size = windowStart == position ? size * 2 : size;
+            map(position, size);
+        }
+    }
+
+    private void map(long start, long size) throws IOException {
+        long length = Math.min(Math.min(size, Integer.MAX_VALUE), endOffset - start);
+        this.window = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        this.windowStart = start;
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        if (!saveState) {
+            return;
+        }
+        executionContext.putLong(executionContextKey(BYTE_OFFSET_KEY), position);
+        executionContext.putInt(executionContextKey(LINE_NUMBER_KEY), lineNumber);
+    }
+
+    // same keys of the ItemStreamSupport ("<name>.<key>"), the contexts saved before stay valid for a restart
+    private String executionContextKey(String key) {
+        return name + "." + key;
+    }
+
+    // the offset isn't meaningful for a restart when the reader is shared by several threads
+    public void setSaveState(boolean saveState) {
+        this.saveState = saveState;
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        this.window = null;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new ItemStreamException("Unable to close file: " + inputFile, e);
+            } finally {
+                channel = null;
+            }
+        }
+    }
+
+    // CharSequence view of a line of the mapped buffer, one char per byte
+    private static class AsciiLine implements CharSequence {
+
+        private ByteBuffer buffer;
+        private int offset;
+        private int length;
+
+        void reset(ByteBuffer buffer, int offset, int length) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        boolean isAscii() {
+            for (int i = 0; i < length; i++) {
+                if (buffer.get(offset + i) < 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        String decode() {
+            byte[] bytes = new byte[length];
+            buffer.get(offset, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) buffer.get(offset + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            byte[] bytes = new byte[end - start];
+            buffer.get(offset + start, bytes);
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length).toString();
+        }
+    }
+}
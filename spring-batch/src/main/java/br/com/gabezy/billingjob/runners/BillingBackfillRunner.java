@@ -0,0 +1,292 @@
+package br.com.gabezy.billingjob.runners;
+
+import br.com.gabezy.billingjob.config.BillingTaskExecutors;
+import br.com.gabezy.billingjob.services.AsyncJobLauncherService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.repository.JobInstanceAlreadyCompleteException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+
+/*
+ * Runs the BillingJob for every month from spring.cellular.backfill.from to spring.cellular.backfill.to, several months
+ * at a time on the AsyncJobLauncherService. The files of each month are named by the input-file, output-file and
+ * skip-file templates, where {year} and {month} (zero padded) are replaced.
+ *
+ * The number of concurrent runs is the budget of the pool: the connections of the DataSource (less one, used to follow
+ * the runs) divided by the connections a run holds at once, and never more than the threads of the
+ * jobLauncherTaskExecutor, so the months waiting for a slot are not queued on the executor with a JobExecution already
+ * started. The connections of a run are the ones of its busiest step in the configured mode: a chunk transaction per
+ * thread of its executor (consumer threads, local partitions, remote workers of this JVM) and the cursor of each
+ * table reader, plus the job thread. The threads of the steps come from the shared executors of the job, whose limits
+ * hold for all the runs together.
+ *
+ * The runs are followed through the JobExplorer: every finished month is logged with the progress of the backfill,
+ * and a summary (status, duration and items of each month, throughput of the whole backfill) is logged at the end.
+ * A month that can't be launched or whose run fails doesn't stop the others: the runner fails once they have run. The
+ * months already completed are skipped.
+ *
+ * Spring Boot must not run the job at the startup (spring.batch.job.enabled=false).
+ */
+@Component
+@ConditionalOnProperty(name = "spring.cellular.backfill.enabled", havingValue = "true")
+public class BillingBackfillRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(BillingBackfillRunner.class);
+
+    private final Job job;
+    private final AsyncJobLauncherService jobLauncherService;
+    private final JobExplorer jobExplorer;
+    private final YearMonth from;
+    private final YearMonth to;
+    private final String inputFile;
+    private final String outputFile;
+    private final String skipFile;
+    private final int concurrency;
+    private final int connectionsPerRun;
+    private final Duration pollInterval;
+
+    public BillingBackfillRunner(Job job, AsyncJobLauncherService jobLauncherService, JobExplorer jobExplorer,
+                                 DataSource dataSource, BillingTaskExecutors taskExecutors,
+                                 @Value("${spring.batch.job.enabled:true}") boolean jobEnabled,
+                                 @Value("${spring.cellular.backfill.from}") String from,
+                                 @Value("${spring.cellular.backfill.to}") String to,
+                                 @Value("${spring.cellular.backfill.input-file:input/billing-{year}-{month}.csv}")
+                                 String inputFile,
+                                 @Value("${spring.cellular.backfill.output-file:staging/billing-report-{year}-{month}.csv}")
+                                 String outputFile,
+                                 @Value("${spring.cellular.backfill.skip-file:staging/billing-data-skip-{year}-{month}.psv}")
+                                 String skipFile,
+                                 @Value("${spring.cellular.backfill.max-connections:0}") int maxConnections,
+                                 @Value("${spring.cellular.backfill.connections-per-run:0}") int connectionsPerRun,
+                                 @Value("${spring.cellular.backfill.poll-interval:PT1S}") Duration pollInterval,
+                                 @Value("${spring.cellular.executor.max-jobs:2}") int maxJobs,
+                                 @Value("${spring.cellular.ingestion.incremental:false}") boolean incrementalIngestion,
+                                 @Value("${spring.cellular.fused:false}") boolean fusedReport,
+                                 @Value("${spring.cellular.ingestion.partitioned:false}") boolean partitionedIngestion,
+                                 @Value("${spring.cellular.ingestion.grid-size:4}") int ingestionGridSize,
+                                 @Value("${spring.cellular.ingestion.threads:1}") int ingestionThreads,
+                                 @Value("${spring.cellular.report.partitioned:false}") boolean partitionedReport,
+                                 @Value("${spring.cellular.report.remote.enabled:false}") boolean remoteReport,
+                                 @Value("${spring.cellular.report.remote.workers:4}") int remoteWorkers,
+                                 @Value("${spring.cellular.report.grid-size:4}") int reportGridSize,
+                                 @Value("${spring.cellular.report.async.enabled:false}") boolean asyncReport,
+                                 @Value("${spring.cellular.report.threads:1}") int reportThreads,
+                                 @Value("${spring.cellular.aggregation.enabled:false}") boolean accountAggregation) {
+        if (jobEnabled) {
+            throw new IllegalStateException("The backfill requires spring.batch.job.enabled=false, otherwise the job " +
+                    "is also run at the startup");
+        }
+        this.from = YearMonth.parse(from);
+        this.to = YearMonth.parse(to);
+        if (this.from.isAfter(this.to)) {
+            throw new IllegalStateException("Invalid backfill range: " + from + " to " + to);
+        }
+        this.job = job;
+        this.jobLauncherService = jobLauncherService;
+        this.jobExplorer = jobExplorer;
+        this.inputFile = inputFile;
+        this.outputFile = outputFile;
+        this.skipFile = skipFile;
+        this.pollInterval = pollInterval;
+
+        // same steps as BillingJobConfig.job(), each chunk transaction holds a connection
+        int ingestionConnections;
+        int reportConnections;
+        if (incrementalIngestion) {
+            // deltaIngestion, and reportPatch with the cursor of the changed rows
+            ingestionConnections = 1;
+            reportConnections = 2;
+        } else if (fusedReport) {
+            // the report is written by the consumer threads of the ingestion, nothing is read from the database
+            ingestionConnections = taskExecutors.concurrency(ingestionThreads);
+            reportConnections = 0;
+        } else {
+            ingestionConnections = partitionedIngestion
+                    ? taskExecutors.concurrency(ingestionGridSize)
+                    : taskExecutors.concurrency(ingestionThreads);
+            if (remoteReport) {
+                // the workers of this JVM, each with its transaction and its cursor
+                reportConnections = 2 * Math.min(taskExecutors.concurrency(remoteWorkers), reportGridSize);
+            } else if (partitionedReport) {
+                reportConnections = 2 * taskExecutors.concurrency(reportGridSize);
+            } else if (asyncReport) {
+                // the pricing threads don't use the database, the chunks are written by the step thread
+                reportConnections = 2;
+            } else {
+                reportConnections = taskExecutors.concurrency(reportThreads) + 1;
+            }
+        }
+        // the aggregation tasklet streams the month with its own query
+        int aggregationConnections = accountAggregation ? 2 : 0;
+        this.connectionsPerRun = connectionsPerRun > 0
+                ? connectionsPerRun
+                : Math.max(ingestionConnections, Math.max(reportConnections, aggregationConnections)) + 1;
+        int connections = maxConnections > 0 ? maxConnections : poolSize(dataSource) - 1;
+        this.concurrency = Math.max(1, Math.min(maxJobs, connections / this.connectionsPerRun));
+    }
+
+    int getConcurrency() {
+        return concurrency;
+    }
+
+    int getConnectionsPerRun() {
+        return connectionsPerRun;
+    }
+
+    // HikariCP is the pool of Spring Boot, 10 connections unless spring.datasource.hikari.maximum-pool-size is set
+    private static int poolSize(DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource hikariDataSource) {
+            return hikariDataSource.getMaximumPoolSize();
+        }
+        return 10;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        Deque<YearMonth> pending = new ArrayDeque<>();
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            pending.add(month);
+        }
+        int months = pending.size();
+        log.info("Backfill of {} months ({} to {}): {} concurrent runs of {} connections", months, from, to,
+                concurrency, connectionsPerRun);
+
+        long start = System.nanoTime();
+        List<MonthRun> running = new ArrayList<>(concurrency);
+        List<MonthRun> finished = new ArrayList<>(months);
+        while (!pending.isEmpty() || !running.isEmpty()) {
+            while (!pending.isEmpty() && running.size() < concurrency) {
+                YearMonth month = pending.poll();
+                try {
+                    JobExecution jobExecution = jobLauncherService.run(job, jobParameters(month));
+                    running.add(new MonthRun(month, jobExecution.getId(), System.nanoTime()));
+                } catch (JobInstanceAlreadyCompleteException e) {
+                    log.info("Backfill of {} skipped: already completed", month);
+                    finished.add(new MonthRun(month, null, System.nanoTime()));
+                } catch (Exception e) {
+                    // e.g. a run of the month still marked as running, or a failure of the job repository
+                    log.error("Backfill of {} failed to launch", month, e);
+                    MonthRun monthRun = new MonthRun(month, null, System.nanoTime());
+                    monthRun.status = BatchStatus.FAILED;
+                    finished.add(monthRun);
+                }
+            }
+
+            if (running.isEmpty()) {
+                continue;
+            }
+            Thread.sleep(pollInterval.toMillis());
+            for (Iterator<MonthRun> iterator = running.iterator(); iterator.hasNext(); ) {
+                MonthRun monthRun = iterator.next();
+                JobExecution jobExecution = jobExplorer.getJobExecution(monthRun.jobExecutionId);
+                if (Objects.nonNull(jobExecution) && !jobExecution.isRunning()) {
+                    iterator.remove();
+                    monthRun.finish(jobExecution);
+                    finished.add(monthRun);
+                    log.info("Backfill {}/{}: {} {} in {}, {} items read ({} running, {} pending)", finished.size(),
+                            months, monthRun.month, monthRun.status, monthRun.duration(), monthRun.readCount,
+                            running.size(), pending.size());
+                }
+            }
+        }
+        summary(finished, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private JobParameters jobParameters(YearMonth month) {
+        return new JobParametersBuilder()
+                .addString("input.file", file(inputFile, month))
+                .addString("output.file", file(outputFile, month))
+                .addString("skip.file", file(skipFile, month))
+                .addJobParameter("data.year", month.getYear(), Integer.class)
+                .addJobParameter("data.month", month.getMonthValue(), Integer.class)
+                .toJobParameters();
+    }
+
+    private static String file(String template, YearMonth month) {
+        return template.replace("{year}", Integer.toString(month.getYear()))
+                .replace("{month}", String.format("%02d", month.getMonthValue()));
+    }
+
+    private void summary(List<MonthRun> finished, Duration duration) {
+        long readCount = 0;
+        long writeCount = 0;
+        List<YearMonth> failed = new ArrayList<>();
+        finished.sort((first, second) -> first.month.compareTo(second.month));
+        for (MonthRun monthRun : finished) {
+            if (Objects.isNull(monthRun.jobExecutionId)) {
+                if (Objects.nonNull(monthRun.status)) {
+                    log.info("  {} {}: not launched", monthRun.month, monthRun.status);
+                    failed.add(monthRun.month);
+                }
+                continue;
+            }
+            log.info("  {} {} in {}: {} items read, {} written", monthRun.month, monthRun.status,
+                    monthRun.duration(), monthRun.readCount, monthRun.writeCount);
+            readCount += monthRun.readCount;
+            writeCount += monthRun.writeCount;
+            if (monthRun.status != BatchStatus.COMPLETED) {
+                failed.add(monthRun.month);
+            }
+        }
+        double seconds = Math.max(duration.toMillis(), 1) / 1000.0;
+        log.info("Backfill of {} months finished in {}: {} failed, {} items read, {} written ({} items read/s)",
+                finished.size(), duration, failed.size(), readCount, writeCount, Math.round(readCount / seconds));
+        if (!failed.isEmpty()) {
+            throw new IllegalStateException("Backfill failed for the months " + failed);
+        }
+    }
+
+    // jobExecutionId is null for a month already completed (no status) or that failed to launch (FAILED)
+    private static final class MonthRun {
+
+        private final YearMonth month;
+        private final Long jobExecutionId;
+        private final long startNanos;
+        private long endNanos;
+        private BatchStatus status;
+        private long readCount;
+        private long writeCount;
+
+        private MonthRun(YearMonth month, Long jobExecutionId, long startNanos) {
+            this.month = month;
+            this.jobExecutionId = jobExecutionId;
+            this.startNanos = startNanos;
+            this.endNanos = startNanos;
+        }
+
+        private void finish(JobExecution jobExecution) {
+            this.endNanos = System.nanoTime();
+            this.status = jobExecution.getStatus();
+            for (StepExecution stepExecution : jobExecution.getStepExecutions()) {
+                readCount += stepExecution.getReadCount();
+                writeCount += stepExecution.getWriteCount();
+            }
+        }
+
+        private Duration duration() {
+            return Duration.ofNanos(endNanos - startNanos);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package br.com.gabezy.billingjob.services;
+
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersInvalidException;
+import org.springframework.batch.core.launch.support.TaskExecutorJobLauncher;
+import org.springframework.batch.core.repository.JobExecutionAlreadyRunningException;
+import org.springframework.batch.core.repository.JobInstanceAlreadyCompleteException;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.JobRestartException;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ExecutionException;
+
+/*
+ * Launches jobs on the jobLauncherTaskExecutor: run() returns as soon as the JobExecution is created and the job runs
+ * on a thread of the executor, runAndWait() runs the job on the executor too but returns once it is finished (used to
+ * run the job at the startup, see BillingJobConfig.jobLauncherApplicationRunner). Either way the jobs take a slot of
+ * the executor, so at most spring.cellular.executor.max-jobs run at once.
+ *
+ * The launchers aren't exposed as JobLauncher beans, so the synchronous launcher of Spring Boot (used by the tests)
+ * is still the only one.
+ */
+@Service
+public class AsyncJobLauncherService {
+
+    private final TaskExecutorJobLauncher jobLauncher;
+    private final TaskExecutorJobLauncher waitingJobLauncher;
+
+    public AsyncJobLauncherService(JobRepository jobRepository, AsyncTaskExecutor jobLauncherTaskExecutor)
+            throws Exception {
+        this.jobLauncher = new TaskExecutorJobLauncher();
+        this.jobLauncher.setJobRepository(jobRepository);
+        this.jobLauncher.setTaskExecutor(jobLauncherTaskExecutor);
+        this.jobLauncher.afterPropertiesSet();
+
+        this.waitingJobLauncher = new TaskExecutorJobLauncher();
+        this.waitingJobLauncher.setJobRepository(jobRepository);
+        this.waitingJobLauncher.setTaskExecutor(task -> runAndWait(jobLauncherTaskExecutor, task));
+        this.waitingJobLauncher.afterPropertiesSet();
+    }
+
+    public JobExecution run(Job job, JobParameters jobParameters) throws JobExecutionAlreadyRunningException,
+            JobRestartException, JobInstanceAlreadyCompleteException, JobParametersInvalidException {
+        return jobLauncher.run(job, jobParameters);
+    }
+
+    public JobExecution runAndWait(Job job, JobParameters jobParameters) throws JobExecutionAlreadyRunningException,
+            JobRestartException, JobInstanceAlreadyCompleteException, JobParametersInvalidException {
+        return waitingJobLauncher.run(job, jobParameters);
+    }
+
+    // the job task records its own failures in the JobExecution, only what escapes it is thrown again here
+    private static void runAndWait(AsyncTaskExecutor taskExecutor, Runnable task) {
+        try {
+            taskExecutor.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TaskRejectedException("Interrupted while waiting for the job", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
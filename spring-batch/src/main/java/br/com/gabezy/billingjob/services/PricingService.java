@@ -1,6 +1,7 @@
 package br.com.gabezy.billingjob.services;
 
 import br.com.gabezy.billingjob.config.PricingException;
+import br.com.gabezy.billingjob.domain.RateCard;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -34,4 +35,8 @@ public class PricingService {
     public float getSmsPricing() {
         return this.smsPricing;
     }
+
+    public RateCard getRateCard() {
+        return new RateCard(getDataPricing(), getCallPricing(), getSmsPricing());
+    }
 }
@@ -0,0 +1,91 @@
+package br.com.gabezy.billingjob.services;
+
+import br.com.gabezy.billingjob.config.PricingException;
+import br.com.gabezy.billingjob.domain.RateCard;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * Caches the RateCard resolved from the PricingService. The snapshot is loaded again (with retries) when it is older
+ * than the TTL, and refreshed in background when it is close to expire, so the callers almost never wait for the
+ * PricingService nor see its random failures.
+ */
+@Service
+public class PricingSnapshotService {
+
+    private static final Logger log = LoggerFactory.getLogger(PricingSnapshotService.class);
+
+    private final PricingService pricingService;
+    private final long ttlNanos;
+    private final long refreshAheadNanos;
+    private final RetryTemplate retryTemplate;
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+    private volatile Snapshot snapshot;
+
+    public PricingSnapshotService(PricingService pricingService,
+                                  @Value("${spring.cellular.pricing.cache.ttl:PT5M}") Duration ttl,
+                                  @Value("${spring.cellular.pricing.cache.refresh-ahead:PT1M}") Duration refreshAhead,
+                                  @Value("${spring.cellular.pricing.max-attempts:20}") int maxAttempts) {
+        this.pricingService = pricingService;
+        this.ttlNanos = ttl.toNanos();
+        this.refreshAheadNanos = Math.min(refreshAhead.toNanos(), ttlNanos);
+        this.retryTemplate = RetryTemplate.builder()
+                .maxAttempts(maxAttempts)
+                .fixedBackoff(10)
+                .retryOn(PricingException.class)
+                .build();
+    }
+
+    public RateCard getRateCard() {
+        Snapshot current = this.snapshot;
+        long now = System.nanoTime();
+
+        if (Objects.isNull(current) || now - current.loadedAt() >= ttlNanos) {
+            return load().rateCard();
+        }
+        if (now - current.loadedAt() >= ttlNanos - refreshAheadNanos) {
+            refreshAhead();
+        }
+        return current.rateCard();
+    }
+
+    private synchronized Snapshot load() {
+        Snapshot current = this.snapshot;
+        if (Objects.nonNull(current) && System.nanoTime() - current.loadedAt() < ttlNanos) {
+            return current; // loaded by another thread while this one was waiting
+        }
+        return reload();
+    }
+
+    private Snapshot reload() {
+        RateCard rateCard = retryTemplate.execute(context -> pricingService.getRateCard());
+        Snapshot loaded = new Snapshot(rateCard, System.nanoTime());
+        this.snapshot = loaded;
+        log.debug("Loaded rate card: {}", rateCard);
+        return loaded;
+    }
+
+    private void refreshAhead() {
+        if (refreshing.compareAndSet(false, true)) {
+            CompletableFuture.runAsync(this::reload)
+                    .whenComplete((result, error) -> {
+                        refreshing.set(false);
+                        if (Objects.nonNull(error)) {
+                            log.warn("Unable to refresh the rate card, keeping the current one", error);
+                        }
+                    });
+        }
+    }
+
+    private record Snapshot(RateCard rateCard, long loadedAt) {
+    }
+}
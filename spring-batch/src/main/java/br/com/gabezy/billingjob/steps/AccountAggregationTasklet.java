@@ -0,0 +1,325 @@
+package br.com.gabezy.billingjob.steps;
+
+import br.com.gabezy.billingjob.aggregators.AccountTotals;
+import br.com.gabezy.billingjob.domain.RateCard;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Supplier;
+
+/*
+ * Totals of the month by account: the rows of BILLING_DATA are streamed from a cursor into an AccountTotals map
+ * (primitive arrays, no object per row nor per account), priced with the RateCard of the step. When the map reaches
+ * its memory budget it is written to a temporary file sorted by ACCOUNT_ID (a run) and cleared; at the end the runs
+ * are merged (k-way, the totals of an account found in several runs are added), so the memory used doesn't depend on
+ * the number of rows nor of accounts.
+ *
+ * Writes the totals of every account, ordered by ACCOUNT_ID, to <output.file>.accounts.csv and the topN accounts with
+ * the highest billing totals to <output.file>.top.csv
+ * ("accountId,lines,dataUsage,callDuration,smsCount,billingTotal"). The files are written from scratch on every
+ * execution, nothing is saved to restart the step.
+ */
+public class AccountAggregationTasklet implements Tasklet {
+
+    public static final String ACCOUNTS_FILE_SUFFIX = ".accounts.csv";
+    public static final String TOP_FILE_SUFFIX = ".top.csv";
+
+    private static final Logger log = LoggerFactory.getLogger(AccountAggregationTasklet.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Supplier<RateCard> rateCards;
+    private final int year;
+    private final int month;
+    private final Path accountsFile;
+    private final Path topFile;
+    private final int maxAccounts;
+    private final int topN;
+    private final String lineSeparator = System.lineSeparator();
+
+    // the JdbcTemplate should have a fetch size, so the driver streams the rows instead of loading the whole month
+    public AccountAggregationTasklet(JdbcTemplate jdbcTemplate, Supplier<RateCard> rateCards, int year, int month,
+                                     String outputFile, int maxAccounts, int topN) {
+        if (topN < 1) {
+            throw new IllegalArgumentException("Invalid top accounts: " + topN);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.rateCards = rateCards;
+        this.year = year;
+        this.month = month;
+        this.accountsFile = Paths.get(outputFile + ACCOUNTS_FILE_SUFFIX).toAbsolutePath();
+        this.topFile = Paths.get(outputFile + TOP_FILE_SUFFIX).toAbsolutePath();
+        this.maxAccounts = maxAccounts;
+        this.topN = topN;
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+        RateCard rateCard = rateCards.get();
+        AccountTotals totals = new AccountTotals(maxAccounts);
+        List<Run> runs = new ArrayList<>();
+
+        try {
+            jdbcTemplate.query("SELECT ACCOUNT_ID, DATA_USAGE, CALL_DURATION, SMS_COUNT FROM BILLING_DATA " +
+                            "WHERE DATA_YEAR = ? AND DATA_MONTH = ?",
+                    rs -> {
+                        float dataUsage = rs.getFloat(2);
+                        int callDuration = rs.getInt(3);
+                        int smsCount = rs.getInt(4);
+                        totals.add(rs.getInt(1), dataUsage, callDuration, smsCount,
+                                rateCard.billingTotal(dataUsage, callDuration, smsCount));
+                        contribution.incrementReadCount();
+                        if (totals.isFull()) {
+                            runs.add(spill(totals));
+                        }
+                    }, year, month);
+
+            TopAccounts top = new TopAccounts(topN);
+            long accounts;
+            try (BufferedWriter writer = Files.newBufferedWriter(accountsFile)) {
+                AccountTotals.AccountConsumer output = (accountId, lines, dataUsage, callDuration, smsCount,
+                                                        billingTotal) -> {
+                    writeLine(writer, accountId, lines, dataUsage, callDuration, smsCount, billingTotal);
+                    top.offer(accountId, lines, dataUsage, callDuration, smsCount, billingTotal);
+                };
+                // without runs the month fits in memory, no file is written nor read back
+                if (runs.isEmpty()) {
+                    accounts = totals.size();
+                    totals.forEachSorted(output);
+                } else {
+                    if (totals.size() > 0) {
+                        runs.add(spill(totals));
+                    }
+                    accounts = merge(runs, output);
+                }
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(topFile)) {
+                top.writeDescending(writer);
+            }
+            contribution.incrementWriteCount(accounts);
+            log.info("Aggregated {} rows of {}-{} into {} accounts ({} runs): {}, {}", contribution.getReadCount(),
+                    year, month, accounts, runs.size(), accountsFile, topFile);
+        } finally {
+            for (Run run : runs) {
+                Files.deleteIfExists(run.file());
+            }
+        }
+        return RepeatStatus.FINISHED;
+    }
+
+    private Run spill(AccountTotals totals) {
+        try {
+            Path file = Files.createTempFile("account-totals-", ".run");
+            try (DataOutputStream output = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE))) {
+                totals.forEachSorted((accountId, lines, dataUsage, callDuration, smsCount, billingTotal) ->
+                        AccountTotals.write(output, accountId, lines, dataUsage, callDuration, smsCount,
+                                billingTotal));
+            }
+            Run run = new Run(file, totals.size());
+            log.debug("Spilled {} accounts to {}", run.accounts(), file);
+            totals.clear();
+            return run;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to spill the account totals", e);
+        }
+    }
+
+    // k-way merge of the sorted runs, returns the number of accounts
+    private long merge(List<Run> runs, AccountTotals.AccountConsumer output) throws IOException {
+        List<InputStream> inputs = new ArrayList<>(runs.size());
+        PriorityQueue<AccountTotals.Cursor> cursors = new PriorityQueue<>(runs.size(),
+                Comparator.comparingInt(cursor -> cursor.accountId));
+        try {
+            for (Run run : runs) {
+                InputStream input = new BufferedInputStream(Files.newInputStream(run.file()), BUFFER_SIZE);
+                inputs.add(input);
+                AccountTotals.Cursor cursor = new AccountTotals.Cursor(new DataInputStream(input), run.accounts());
+                if (cursor.next()) {
+                    cursors.add(cursor);
+                }
+            }
+
+            long accounts = 0;
+            while (!cursors.isEmpty()) {
+                AccountTotals.Cursor cursor = cursors.poll();
+                int accountId = cursor.accountId;
+                long lines = 0;
+                double dataUsage = 0;
+                long callDuration = 0;
+                long smsCount = 0;
+                double billingTotal = 0;
+                // an account is at most once in a run, so it is the head of at most one cursor per run
+                while (true) {
+                    lines += cursor.lines;
+                    dataUsage += cursor.dataUsage;
+                    callDuration += cursor.callDuration;
+                    smsCount += cursor.smsCount;
+                    billingTotal += cursor.billingTotal;
+                    if (cursor.next()) {
+                        cursors.add(cursor);
+                    }
+                    if (cursors.isEmpty() || cursors.peek().accountId != accountId) {
+                        break;
+                    }
+                    cursor = cursors.poll();
+                }
+                output.accept(accountId, lines, dataUsage, callDuration, smsCount, billingTotal);
+                accounts++;
+            }
+            return accounts;
+        } finally {
+            for (InputStream input : inputs) {
+                input.close();
+            }
+        }
+    }
+
+    private void writeLine(BufferedWriter writer, int accountId, long lines, double dataUsage, long callDuration,
+                           long smsCount, double billingTotal) throws IOException {
+        writer.write(Integer.toString(accountId));
+        writer.write(',');
+        writer.write(Long.toString(lines));
+        writer.write(',');
+        // summed as double, written with the float precision of DATA_USAGE, like the report (22.39, not 22.3899...)
+        writer.write(Float.toString((float) dataUsage));
+        writer.write(',');
+        writer.write(Long.toString(callDuration));
+        writer.write(',');
+        writer.write(Long.toString(smsCount));
+        writer.write(',');
+        writer.write(Double.toString(billingTotal));
+        writer.write(lineSeparator);
+    }
+
+    private record Run(Path file, long accounts) {
+    }
+
+    /*
+     * The topN accounts by billing total: a min-heap on parallel arrays, the account with the lowest total of the top
+     * is at the root and is replaced when a higher total is offered.
+     */
+    private class TopAccounts {
+
+        private final int[] accountIds;
+        private final long[] lines;
+        private final double[] dataUsage;
+        private final long[] callDuration;
+        private final long[] smsCount;
+        private final double[] billingTotal;
+        private int size;
+
+        TopAccounts(int capacity) {
+            accountIds = new int[capacity];
+            lines = new long[capacity];
+            dataUsage = new double[capacity];
+            callDuration = new long[capacity];
+            smsCount = new long[capacity];
+            billingTotal = new double[capacity];
+        }
+
+        void offer(int accountId, long lines, double dataUsage, long callDuration, long smsCount,
+                   double billingTotal) {
+            if (size < accountIds.length) {
+                int index = size++;
+                set(index, accountId, lines, dataUsage, callDuration, smsCount, billingTotal);
+                siftUp(index);
+            } else if (billingTotal > this.billingTotal[0]) {
+                set(0, accountId, lines, dataUsage, callDuration, smsCount, billingTotal);
+                siftDown(0, size);
+            }
+        }
+
+        // empties the heap: the root (lowest total) is moved to the end until the heap is sorted descending
+        void writeDescending(BufferedWriter writer) throws IOException {
+            for (int end = size - 1; end > 0; end--) {
+                swap(0, end);
+                siftDown(0, end);
+            }
+            for (int index = 0; index < size; index++) {
+                writeLine(writer, accountIds[index], lines[index], dataUsage[index], callDuration[index],
+                        smsCount[index], billingTotal[index]);
+            }
+            size = 0;
+        }
+
+        private void set(int index, int accountId, long lines, double dataUsage, long callDuration, long smsCount,
+                         double billingTotal) {
+            this.accountIds[index] = accountId;
+            this.lines[index] = lines;
+            this.dataUsage[index] = dataUsage;
+            this.callDuration[index] = callDuration;
+            this.smsCount[index] = smsCount;
+            this.billingTotal[index] = billingTotal;
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) / 2;
+                if (billingTotal[parent] <= billingTotal[index]) {
+                    return;
+                }
+                swap(parent, index);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index, int end) {
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= end) {
+                    return;
+                }
+                if (child + 1 < end && billingTotal[child + 1] < billingTotal[child]) {
+                    child++;
+                }
+                if (billingTotal[index] <= billingTotal[child]) {
+                    return;
+                }
+                swap(index, child);
+                index = child;
+            }
+        }
+
+        private void swap(int i, int j) {
+            int accountId = accountIds[i];
+            accountIds[i] = accountIds[j];
+            accountIds[j] = accountId;
+            long line = lines[i];
+            lines[i] = lines[j];
+            lines[j] = line;
+            double usage = dataUsage[i];
+            dataUsage[i] = dataUsage[j];
+            dataUsage[j] = usage;
+            long duration = callDuration[i];
+            callDuration[i] = callDuration[j];
+            callDuration[j] = duration;
+            long sms = smsCount[i];
+            smsCount[i] = smsCount[j];
+            smsCount[j] = sms;
+            double total = billingTotal[i];
+            billingTotal[i] = billingTotal[j];
+            billingTotal[j] = total;
+        }
+    }
+}
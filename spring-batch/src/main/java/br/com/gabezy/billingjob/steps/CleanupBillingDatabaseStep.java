@@ -12,14 +12,26 @@ import org.springframework.jdbc.core.JdbcTemplate;
 
 import java.util.Objects;
 
+/*
+ * Removes the rows of the month before the ingestion. When BILLING_DATA is partitioned by month
+ * (src/sql/schema-billing-partitioned-postgresql.sql), the partition of the month is truncated, or created when the
+ * month is run for the first time, instead of deleting the rows one by one: it takes the same time for any number of
+ * rows and doesn't write the deleted rows to the WAL.
+ */
 public class CleanupBillingDatabaseStep implements Tasklet {
 
     private final JdbcTemplate jdbcTemplate;
+    private final boolean partitioned;
     private final Logger log = LoggerFactory.getLogger(CleanupBillingDatabaseStep.class);
     private static final String BILLING_TABLE = "BILLING_DATA";
 
     public CleanupBillingDatabaseStep(JdbcTemplate jdbcTemplate) {
+        this(jdbcTemplate, false);
+    }
+
+    public CleanupBillingDatabaseStep(JdbcTemplate jdbcTemplate, boolean partitioned) {
         this.jdbcTemplate = jdbcTemplate;
+        this.partitioned = partitioned;
     }
 
     @Override
@@ -35,6 +47,11 @@ public class CleanupBillingDatabaseStep implements Tasklet {
             Integer year = (Integer) yearParam.getValue();
             Integer month = (Integer) monthParam.getValue();
 
+            if (partitioned) {
+                preparePartition(year, month);
+                return RepeatStatus.FINISHED;
+            }
+
             String sql = String.format("SELECT COUNT(*) FROM %s WHERE DATA_YEAR = %d AND DATA_MONTH = %d",
                     BILLING_TABLE, year, month);
 
@@ -53,4 +70,23 @@ public class CleanupBillingDatabaseStep implements Tasklet {
 
         return RepeatStatus.FINISHED;
     }
+
+    private void preparePartition(Integer year, Integer month) {
+        String partition = partitionName(year, month);
+        String existing = jdbcTemplate.queryForObject("SELECT to_regclass(?)::text", String.class, partition);
+
+        if (Objects.nonNull(existing)) {
+            jdbcTemplate.execute(String.format("TRUNCATE TABLE %s", partition));
+            log.info("Truncated partition: " + partition);
+        } else {
+            // (year, 13) as the upper bound of december still sorts before (year + 1, 1)
+            jdbcTemplate.execute(String.format("CREATE TABLE %s PARTITION OF %s FOR VALUES FROM (%d, %d) TO (%d, %d)",
+                    partition, BILLING_TABLE, year, month, year, month + 1));
+            log.info("Created partition: " + partition);
+        }
+    }
+
+    private static String partitionName(Integer year, Integer month) {
+        return String.format("%s_%04d_%02d", BILLING_TABLE, year, month);
+    }
 }
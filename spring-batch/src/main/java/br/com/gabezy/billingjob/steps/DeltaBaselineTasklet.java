@@ -0,0 +1,51 @@
+package br.com.gabezy.billingjob.steps;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Objects;
+
+/*
+ * First step of the incremental ingestion. When the month has no fingerprints (it was never ingested, or its last
+ * run was a full ingestion, whose incrementalStateCleanup step removes them), the rows of the month are removed by the
+ * cleanup and every line of the file is ingested as a new row. The keys of the removed rows are recorded as changed,
+ * so their lines are also removed from the report. Otherwise the month was last written by the incremental ingestion
+ * and nothing is done, only the delta of the file is applied by the next steps.
+ */
+public class DeltaBaselineTasklet implements Tasklet {
+
+    private static final Logger log = LoggerFactory.getLogger(DeltaBaselineTasklet.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Tasklet cleanup;
+    private final int year;
+    private final int month;
+
+    public DeltaBaselineTasklet(JdbcTemplate jdbcTemplate, Tasklet cleanup, int year, int month) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cleanup = cleanup;
+        this.year = year;
+        this.month = month;
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+        Integer fingerprints = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM BILLING_DATA_FINGERPRINT " +
+                "WHERE DATA_YEAR = ? AND DATA_MONTH = ?", Integer.class, year, month);
+        if (Objects.nonNull(fingerprints) && fingerprints > 0) {
+            log.info("{} fingerprints of {}-{}, ingesting the delta", fingerprints, year, month);
+            return RepeatStatus.FINISHED;
+        }
+
+        log.info("No fingerprints of {}-{}, ingesting the whole file", year, month);
+        jdbcTemplate.update("INSERT INTO BILLING_DATA_DELTA (DATA_YEAR, DATA_MONTH, ACCOUNT_ID, PHONE_NUMBER) " +
+                "SELECT DATA_YEAR, DATA_MONTH, ACCOUNT_ID, PHONE_NUMBER FROM BILLING_DATA " +
+                "WHERE DATA_YEAR = ? AND DATA_MONTH = ?", year, month);
+        return cleanup.execute(contribution, chunkContext);
+    }
+}
@@ -1,18 +1,49 @@
 package br.com.gabezy.billingjob.steps;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.batch.core.JobParameters;
 import org.springframework.batch.core.StepContribution;
 import org.springframework.batch.core.scope.context.ChunkContext;
 import org.springframework.batch.core.step.tasklet.Tasklet;
 import org.springframework.batch.repeat.RepeatStatus;
 
+import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.zip.CRC32C;
 
 public class FilePreparationTasklet implements Tasklet {
 
+    /*
+     * COPY: plain Files.copy of the input file (always copies).
+     * TRANSFER: zero-copy FileChannel.transferTo, followed by the CRC32C of the staged file (read from the page cache
+     * just written). Skipped when the source has the size and modification time recorded for the staged file and the
+     * staged file still has the recorded checksum.
+     * LINK: hard link when the input and the staging directory are on the same file system, otherwise TRANSFER.
+     */
+    public enum StagingMode {
+        COPY, TRANSFER, LINK
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(FilePreparationTasklet.class);
+    private static final String CHECKSUM_SUFFIX = ".crc32c";
+    private static final long CHECKSUM_WINDOW_SIZE = 64L * 1024 * 1024;
+
+    private final StagingMode stagingMode;
+
+    public FilePreparationTasklet() {
+        this(StagingMode.COPY);
+    }
+
+    public FilePreparationTasklet(StagingMode stagingMode) {
+        this.stagingMode = stagingMode;
+    }
 
     @Override
     public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
@@ -22,7 +53,99 @@ public class FilePreparationTasklet implements Tasklet {
 
         Path source = Paths.get(inputFile);
         Path target = Paths.get("staging", source.toFile().getName());
-        Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+
+        if (stagingMode == StagingMode.COPY) {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+            return RepeatStatus.FINISHED;
+        }
+
+        // size and modification time of the source identify the version of the file that was staged
+        long size = Files.size(source);
+        long lastModified = Files.getLastModifiedTime(source).toMillis();
+
+        if (isAlreadyStaged(source, target, size, lastModified)) {
+            log.info("{} is already staged, skipping the copy", target);
+            return RepeatStatus.FINISHED;
+        }
+
+        // an interrupted copy must not be taken for the staged file by the next run
+        Files.deleteIfExists(checksumFile(target));
+        String staged = size + " " + lastModified;
+        if (stagingMode != StagingMode.LINK || !link(source, target)) {
+            // the link shares the bytes of the source, only a copy has a checksum
+            transfer(source, target);
+            staged += " " + Long.toHexString(checksum(target));
+        }
+        Files.writeString(checksumFile(target), staged);
         return RepeatStatus.FINISHED;
     }
+
+    /*
+     * The checksum file records the size and the modification time of the source staged last time, and the checksum
+     * of the copy: a copy is verified against it (a corrupted copy of the same size is staged again), a link must
+     * still be the source file.
+     */
+    private boolean isAlreadyStaged(Path source, Path target, long size, long lastModified) throws IOException {
+        Path checksumFile = checksumFile(target);
+        if (!Files.exists(target) || Files.size(target) != size || !Files.exists(checksumFile)) {
+            return false;
+        }
+        String[] staged = Files.readString(checksumFile).trim().split(" ");
+        if (staged.length < 2 || !staged[0].equals(String.valueOf(size)) ||
+                !staged[1].equals(String.valueOf(lastModified))) {
+            return false;
+        }
+        if (staged.length == 2) {
+            return Files.isSameFile(source, target);
+        }
+        if (Long.parseUnsignedLong(staged[2], 16) != checksum(target)) {
+            log.warn("{} doesn't match its checksum, staging it again", target);
+            return false;
+        }
+        return true;
+    }
+
+    private boolean link(Path source, Path target) {
+        try {
+            if (!Objects.equals(Files.getFileStore(source), Files.getFileStore(target.toAbsolutePath().getParent()))) {
+                return false;
+            }
+            Files.deleteIfExists(target);
+            Files.createLink(target, source);
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            log.warn("Unable to link {} to {}, copying it instead: {}", target, source, e.getMessage());
+            return false;
+        }
+    }
+
+    // zero-copy: the kernel moves the bytes between the files, they never reach the heap
+    private void transfer(Path source, Path target) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+        }
+    }
+
+    // CRC32C of the staged file, over memory mapped windows (no copy of the bytes to the heap)
+    private long checksum(Path file) throws IOException {
+        CRC32C crc = new CRC32C();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += CHECKSUM_WINDOW_SIZE) {
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(CHECKSUM_WINDOW_SIZE, size - position)));
+            }
+        }
+        return crc.getValue();
+    }
+
+    private Path checksumFile(Path target) {
+        return target.resolveSibling("." + target.getFileName() + CHECKSUM_SUFFIX);
+    }
 }
@@ -0,0 +1,52 @@
+package br.com.gabezy.billingjob.steps;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.JobParameter;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Objects;
+
+/*
+ * Removes the fingerprints and the pending delta of the month before a full ingestion. The full ingestion rewrites
+ * the rows of the month and the whole report, so the state left by a previous incremental ingestion no longer
+ * describes them: without fingerprints, the next incremental ingestion starts again from a baseline (deltaBaseline).
+ */
+public class IncrementalStateCleanupTasklet implements Tasklet {
+
+    private static final Logger log = LoggerFactory.getLogger(IncrementalStateCleanupTasklet.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public IncrementalStateCleanupTasklet(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+        JobParameters jobParameters = contribution.getStepExecution().getJobParameters();
+        JobParameter<?> yearParam = jobParameters.getParameters().get("data.year");
+        JobParameter<?> monthParam = jobParameters.getParameters().get("data.month");
+
+        if (Objects.nonNull(yearParam) && Objects.nonNull(monthParam) && yearParam.getType().equals(Integer.class) &&
+                monthParam.getType().equals(Integer.class)) {
+            Integer year = (Integer) yearParam.getValue();
+            Integer month = (Integer) monthParam.getValue();
+
+            int fingerprints = jdbcTemplate.update("DELETE FROM BILLING_DATA_FINGERPRINT " +
+                    "WHERE DATA_YEAR = ? AND DATA_MONTH = ?", year, month);
+            int delta = jdbcTemplate.update("DELETE FROM BILLING_DATA_DELTA WHERE DATA_YEAR = ? AND DATA_MONTH = ?",
+                    year, month);
+            if (fingerprints > 0 || delta > 0) {
+                log.info("Removed {} fingerprints and {} delta keys of {}-{}, the next incremental ingestion starts " +
+                        "from a baseline", fingerprints, delta, year, month);
+            }
+        }
+        return RepeatStatus.FINISHED;
+    }
+}
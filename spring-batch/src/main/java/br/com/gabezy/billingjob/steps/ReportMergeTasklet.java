@@ -0,0 +1,94 @@
+package br.com.gabezy.billingjob.steps;
+
+import br.com.gabezy.billingjob.partitioners.AccountRangePartitioner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.repeat.RepeatStatus;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/*
+ * Concatenates the report files written by each account range partition into the final report. The partition
+ * files are zero padded, so sorting them by name keeps the account order.
+ *
+ * Only the files recorded in the output.file of the partition step executions of the job instance are merged (the
+ * partitions of a restart may have completed in a previous execution), so the files left in the directory by other
+ * runs, e.g. a failed run with a bigger grid, are never added to the report. A recorded file that doesn't exist
+ * fails the step instead of leaving its accounts out of the report.
+ */
+public class ReportMergeTasklet implements Tasklet {
+
+    private static final Logger log = LoggerFactory.getLogger(ReportMergeTasklet.class);
+
+    private final String outputFile;
+    private final Function<JobInstance, ? extends Collection<JobExecution>> jobExecutions;
+
+    // jobExecutions: every execution of the job instance, with its step executions (JobExplorer::getJobExecutions)
+    public ReportMergeTasklet(String outputFile,
+                              Function<JobInstance, ? extends Collection<JobExecution>> jobExecutions) {
+        this.outputFile = outputFile;
+        this.jobExecutions = jobExecutions;
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+        JobExecution jobExecution = chunkContext.getStepContext().getStepExecution().getJobExecution();
+        List<Path> partitionFiles = partitionFiles(jobExecutions.apply(jobExecution.getJobInstance()));
+        for (Path partitionFile : partitionFiles) {
+            if (!Files.exists(partitionFile)) {
+                throw new IllegalStateException("Missing partition file of the report: " + partitionFile);
+            }
+        }
+
+        Path target = Paths.get(outputFile).toAbsolutePath();
+        try (FileChannel targetChannel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Path partitionFile : partitionFiles) {
+                try (FileChannel source = FileChannel.open(partitionFile, StandardOpenOption.READ)) {
+                    long size = source.size();
+                    long position = 0;
+                    while (position < size) {
+                        position += source.transferTo(position, size - position, targetChannel);
+                    }
+                }
+            }
+        }
+
+        for (Path partitionFile : partitionFiles) {
+            Files.delete(partitionFile);
+        }
+        log.info("Merged {} partition files into {}", partitionFiles.size(), target);
+        return RepeatStatus.FINISHED;
+    }
+
+    // the partition files of this report recorded by the partition steps, in account order
+    List<Path> partitionFiles(Collection<JobExecution> jobExecutions) {
+        String prefix = outputFile + AccountRangePartitioner.PARTITION_FILE_SUFFIX;
+        TreeSet<String> partitionFiles = new TreeSet<>();
+        for (JobExecution jobExecution : jobExecutions) {
+            for (StepExecution stepExecution : jobExecution.getStepExecutions()) {
+                Object partitionFile = stepExecution.getExecutionContext().get(AccountRangePartitioner.OUTPUT_FILE_KEY);
+                if (partitionFile instanceof String file && file.startsWith(prefix)) {
+                    partitionFiles.add(file);
+                }
+            }
+        }
+        return partitionFiles.stream()
+                .map(file -> Paths.get(file).toAbsolutePath())
+                .toList();
+    }
+}
@@ -0,0 +1,88 @@
+package br.com.gabezy.billingjob.writers;
+
+import br.com.gabezy.billingjob.domain.BillingData;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/*
+ * Writes each chunk with a single PostgreSQL COPY ... FROM STDIN (text format) instead of a batch of INSERTs.
+ * The COPY runs on the connection bound to the chunk transaction, so a failed chunk is still rolled back as a whole.
+ */
+public class BillingDataCopyItemWriter implements ItemWriter<BillingData> {
+
+    private static final String COPY_SQL = "COPY BILLING_DATA (DATA_YEAR, DATA_MONTH, ACCOUNT_ID, PHONE_NUMBER, " +
+            "DATA_USAGE, CALL_DURATION, SMS_COUNT) FROM STDIN";
+
+    private final DataSource dataSource;
+
+    public BillingDataCopyItemWriter(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public void write(Chunk<? extends BillingData> chunk) throws Exception {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        byte[] rows = encode(chunk);
+        Connection connection = DataSourceUtils.getConnection(this.dataSource);
+        try {
+            CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL);
+            try {
+                copyIn.writeToCopy(rows, 0, rows.length);
+                long copiedRows = copyIn.endCopy();
+                if (copiedRows != chunk.size()) {
+                    throw new SQLException("COPY wrote " + copiedRows + " rows, expected " + chunk.size());
+                }
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+        } finally {
+            DataSourceUtils.releaseConnection(connection, this.dataSource);
+        }
+    }
+
+    private byte[] encode(Chunk<? extends BillingData> chunk) {
+        StringBuilder rows = new StringBuilder(chunk.size() * 64);
+        for (BillingData item : chunk) {
+            rows.append(item.dataYear()).append('\t')
+                    .append(item.dataMonth()).append('\t')
+                    .append(item.accountId()).append('\t');
+            appendText(rows, item.phoneNumber());
+            // widened to double, so the stored value is the same one a JDBC setFloat would store
+            rows.append('\t').append((double) item.dataUsage()).append('\t')
+                    .append(item.callDuration()).append('\t')
+                    .append(item.smsCount()).append('\n');
+        }
+        return rows.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // escapes the characters that have a special meaning in the COPY text format
+    private void appendText(StringBuilder rows, String value) {
+        if (value == null) {
+            rows.append("\\N");
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> rows.append("\\\\");
+                case '\t' -> rows.append("\\t");
+                case '\n' -> rows.append("\\n");
+                case '\r' -> rows.append("\\r");
+                default -> rows.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package br.com.gabezy.billingjob.writers;
+
+import br.com.gabezy.billingjob.domain.BillingData;
+import br.com.gabezy.billingjob.domain.BillingDataChange;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Applies the changes found by the BillingDataDeltaReader to BILLING_DATA and BILLING_DATA_FINGERPRINT, and records
+ * the key of every changed row in BILLING_DATA_DELTA, so the report can be patched with only these rows. All the
+ * statements run in the chunk transaction, so the fingerprints never get ahead of the billing data.
+ */
+public class BillingDataDeltaItemWriter implements ItemWriter<BillingDataChange> {
+
+    private static final String KEY_CONDITION = " WHERE DATA_YEAR = ? AND DATA_MONTH = ? AND ACCOUNT_ID = ? " +
+            "AND PHONE_NUMBER = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BillingDataDeltaItemWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void write(Chunk<? extends BillingDataChange> chunk) throws Exception {
+        List<Object[]> added = new ArrayList<>();
+        List<Object[]> addedFingerprints = new ArrayList<>();
+        List<Object[]> changed = new ArrayList<>();
+        List<Object[]> changedFingerprints = new ArrayList<>();
+        List<Object[]> removed = new ArrayList<>();
+        List<Object[]> keys = new ArrayList<>(chunk.size());
+
+        for (BillingDataChange change : chunk) {
+            BillingData item = change.billingData();
+            Object[] key = {item.dataYear(), item.dataMonth(), item.accountId(), item.phoneNumber()};
+            switch (change.type()) {
+                case ADDED -> {
+                    added.add(new Object[]{item.dataYear(), item.dataMonth(), item.accountId(), item.phoneNumber(),
+                            item.dataUsage(), item.callDuration(), item.smsCount()});
+                    addedFingerprints.add(new Object[]{item.dataYear(), item.dataMonth(), item.accountId(),
+                            item.phoneNumber(), change.fingerprint()});
+                }
+                case CHANGED -> {
+                    changed.add(new Object[]{item.dataUsage(), item.callDuration(), item.smsCount(),
+                            item.dataYear(), item.dataMonth(), item.accountId(), item.phoneNumber()});
+                    changedFingerprints.add(new Object[]{change.fingerprint(),
+                            item.dataYear(), item.dataMonth(), item.accountId(), item.phoneNumber()});
+                }
+                case REMOVED -> removed.add(key);
+            }
+            keys.add(key);
+        }
+
+        batchUpdate("INSERT INTO BILLING_DATA (DATA_YEAR, DATA_MONTH, ACCOUNT_ID, PHONE_NUMBER, DATA_USAGE, " +
+                "CALL_DURATION, SMS_COUNT) VALUES (?, ?, ?, ?, ?, ?, ?)", added);
+        batchUpdate("INSERT INTO BILLING_DATA_FINGERPRINT (DATA_YEAR, DATA_MONTH, ACCOUNT_ID, PHONE_NUMBER, " +
+                "FINGERPRINT) VALUES (?, ?, ?, ?, ?)", addedFingerprints);
+        batchUpdate("UPDATE BILLING_DATA SET DATA_USAGE = ?, CALL_DURATION = ?, SMS_COUNT = ?" + KEY_CONDITION,
+                changed);
+        batchUpdate("UPDATE BILLING_DATA_FINGERPRINT SET FINGERPRINT = ?" + KEY_CONDITION, changedFingerprints);
+        batchUpdate("DELETE FROM BILLING_DATA" + KEY_CONDITION, removed);
+        batchUpdate("DELETE FROM BILLING_DATA_FINGERPRINT" + KEY_CONDITION, removed);
+        batchUpdate("INSERT INTO BILLING_DATA_DELTA (DATA_YEAR, DATA_MONTH, ACCOUNT_ID, PHONE_NUMBER) " +
+                "VALUES (?, ?, ?, ?)", keys);
+    }
+
+    private void batchUpdate(String sql, List<Object[]> arguments) {
+        if (!arguments.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, arguments);
+        }
+    }
+}
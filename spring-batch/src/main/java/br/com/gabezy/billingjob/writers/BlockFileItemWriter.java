@@ -0,0 +1,186 @@
+package br.com.gabezy.billingjob.writers;
+
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/*
+ * Writer of a file made of self-contained blocks, one per chunk (e.g. compressed members, columnar row groups). Like
+ * the TransactionAwareBufferedWriter of the FlatFileItemWriter, the blocks of a transaction are kept aside and only
+ * appended to the file right before it commits, so a rolled back chunk never reaches the file, even when other
+ * threads are committing theirs. The position after the committed blocks (and the ones of the current transaction)
+ * is saved in the execution context: a restarted writer truncates the file at the saved position and keeps appending.
+ */
+public abstract class BlockFileItemWriter<T> implements ItemStreamWriter<T> {
+
+    private static final String POSITION_KEY = "position";
+
+    private final String name;
+    private final Path outputFile;
+    // key of the blocks of the current transaction, bound as a transaction resource
+    private final Object pendingBlocksKey = new Object();
+
+    private FileChannel channel;
+    private boolean saveState = true;
+
+    protected BlockFileItemWriter(String name, String outputFile) {
+        this.name = name;
+        this.outputFile = Paths.get(outputFile);
+    }
+
+    // written once, at the beginning of a new file
+    protected byte[] fileHeader() {
+        return new byte[0];
+    }
+
+    // the block of a chunk, an empty block isn't written
+    protected abstract byte[] encode(Chunk<? extends T> chunk) throws Exception;
+
+    // without the state (multi-threaded steps, whose readers don't save theirs either) a restart writes a new file
+    public void setSaveState(boolean saveState) {
+        this.saveState = saveState;
+    }
+
+    @Override
+    public synchronized void open(ExecutionContext executionContext) throws ItemStreamException {
+        long position = saveState ? executionContext.getLong(executionContextKey(POSITION_KEY), 0L) : 0L;
+        try {
+            Path parent = outputFile.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            this.channel = FileChannel.open(outputFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            if (channel.size() < position) {
+                throw new ItemStreamException("Output file " + outputFile + " is smaller than the restart position " +
+                        position);
+            }
+            channel.truncate(position);
+            channel.position(position);
+            if (position == 0) {
+                writeFully(ByteBuffer.wrap(fileHeader()));
+            }
+        } catch (IOException e) {
+            throw new ItemStreamException("Unable to open file: " + outputFile, e);
+        }
+    }
+
+    @Override
+    public void write(Chunk<? extends T> chunk) throws Exception {
+        byte[] block = encode(chunk);
+        if (block.length == 0) {
+            return;
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            append(List.of(block));
+            return;
+        }
+        PendingBlocks pendingBlocks = pendingBlocks();
+        if (Objects.isNull(pendingBlocks)) {
+            pendingBlocks = new PendingBlocks();
+            TransactionSynchronizationManager.bindResource(pendingBlocksKey, pendingBlocks);
+            TransactionSynchronizationManager.registerSynchronization(pendingBlocks);
+        }
+        pendingBlocks.add(block);
+    }
+
+    // blocks written in the current transaction, null out of a transaction or before its first block
+    @SuppressWarnings("unchecked")
+    private PendingBlocks pendingBlocks() {
+        return (PendingBlocks) TransactionSynchronizationManager.getResource(pendingBlocksKey);
+    }
+
+    private synchronized void append(List<byte[]> blocks) throws IOException {
+        if (channel == null) {
+            throw new IOException("Output file " + outputFile + " isn't open");
+        }
+        for (byte[] block : blocks) {
+            writeFully(ByteBuffer.wrap(block));
+        }
+    }
+
+    // same keys of the ItemStreamSupport ("<name>.<key>"), the contexts saved before stay valid for a restart
+    private String executionContextKey(String key) {
+        return name + "." + key;
+    }
+
+    private void writeFully(ByteBuffer block) throws IOException {
+        while (block.hasRemaining()) {
+            channel.write(block);
+        }
+    }
+
+    // called in the chunk transaction, before its blocks are appended
+    @Override
+    public synchronized void update(ExecutionContext executionContext) throws ItemStreamException {
+        if (channel == null || !saveState) {
+            return;
+        }
+        long position;
+        try {
+            position = channel.position();
+        } catch (IOException e) {
+            throw new ItemStreamException("Unable to get the position of file: " + outputFile, e);
+        }
+        PendingBlocks pendingBlocks = pendingBlocks();
+        if (Objects.nonNull(pendingBlocks)) {
+            position += pendingBlocks.size;
+        }
+        executionContext.putLong(executionContextKey(POSITION_KEY), position);
+    }
+
+    @Override
+    public synchronized void close() throws ItemStreamException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            throw new ItemStreamException("Unable to close file: " + outputFile, e);
+        } finally {
+            channel = null;
+        }
+    }
+
+    private class PendingBlocks implements TransactionSynchronization {
+
+        private final List<byte[]> blocks = new ArrayList<>();
+        private long size;
+
+        void add(byte[] block) {
+            blocks.add(block);
+            size += block.length;
+        }
+
+        // a failed append rolls the chunk back, as the FlushFailedException of the TransactionAwareBufferedWriter
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            try {
+                append(blocks);
+            } catch (IOException e) {
+                throw new ItemStreamException("Unable to write to file: " + outputFile, e);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(pendingBlocksKey);
+        }
+    }
+}
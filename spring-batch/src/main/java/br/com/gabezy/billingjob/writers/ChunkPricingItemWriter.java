@@ -0,0 +1,74 @@
+package br.com.gabezy.billingjob.writers;
+
+import br.com.gabezy.billingjob.domain.BillingData;
+import br.com.gabezy.billingjob.domain.ReportingData;
+import br.com.gabezy.billingjob.processors.BillingDataChunkPricer;
+import br.com.gabezy.billingjob.services.PricingSnapshotService;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.batch.item.ItemWriter;
+
+import java.util.List;
+import java.util.Objects;
+
+/*
+ * Receives the whole chunk of BillingData, prices it with a BillingDataChunkPricer and writes only the reportable
+ * items to the delegate. Used by the chunk oriented reportGeneration step, which has no ItemProcessor.
+ */
+public class ChunkPricingItemWriter implements ItemStreamWriter<BillingData> {
+
+    private final PricingSnapshotService pricingSnapshotService;
+    private final float spendingThreshold;
+    private final ItemWriter<ReportingData> delegate;
+
+    private volatile BillingDataChunkPricer pricer;
+
+    public ChunkPricingItemWriter(PricingSnapshotService pricingSnapshotService, float spendingThreshold,
+                                  ItemWriter<ReportingData> delegate) {
+        this.pricingSnapshotService = pricingSnapshotService;
+        this.spendingThreshold = spendingThreshold;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void write(Chunk<? extends BillingData> chunk) throws Exception {
+        List<ReportingData> reportingData = getPricer().price(chunk.getItems());
+        if (!reportingData.isEmpty()) {
+            delegate.write(new Chunk<>(reportingData));
+        }
+    }
+
+    // the rate card is resolved once, like in the BillingDataProcessor
+    private BillingDataChunkPricer getPricer() {
+        BillingDataChunkPricer current = this.pricer;
+        if (Objects.isNull(current)) {
+            current = new BillingDataChunkPricer(pricingSnapshotService.getRateCard(), spendingThreshold);
+            this.pricer = current;
+        }
+        return current;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        if (delegate instanceof ItemStream stream) {
+            stream.open(executionContext);
+        }
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        if (delegate instanceof ItemStream stream) {
+            stream.update(executionContext);
+        }
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        if (delegate instanceof ItemStream stream) {
+            stream.close();
+        }
+    }
+}
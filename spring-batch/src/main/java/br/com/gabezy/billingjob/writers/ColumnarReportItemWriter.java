@@ -0,0 +1,28 @@
+package br.com.gabezy.billingjob.writers;
+
+import br.com.gabezy.billingjob.columnar.ColumnarReportFormat;
+import br.com.gabezy.billingjob.domain.ReportingData;
+import org.springframework.batch.item.Chunk;
+
+/*
+ * Writes the report in the ColumnarReportFormat, one row group per chunk.
+ */
+public class ColumnarReportItemWriter extends BlockFileItemWriter<ReportingData> {
+
+    public ColumnarReportItemWriter(String name, String outputFile) {
+        super(name, outputFile);
+    }
+
+    @Override
+    protected byte[] fileHeader() {
+        return ColumnarReportFormat.fileHeader();
+    }
+
+    @Override
+    protected byte[] encode(Chunk<? extends ReportingData> chunk) {
+        if (chunk.isEmpty()) {
+            return new byte[0];
+        }
+        return ColumnarReportFormat.encodeRowGroup(chunk.getItems());
+    }
+}
@@ -0,0 +1,67 @@
+package br.com.gabezy.billingjob.writers;
+
+import br.com.gabezy.billingjob.aggregators.AppendingLineAggregator;
+import br.com.gabezy.billingjob.compression.Compression;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.file.transform.LineAggregator;
+
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Flat file writer that compresses each chunk as an independent gzip member (or zstd frame) appended to the file, so
+ * the file can be truncated after any chunk on a restart or rollback.
+ */
+public class CompressedFileItemWriter<T> extends BlockFileItemWriter<T> {
+
+    private final Compression compression;
+    private final LineAggregator<T> lineAggregator;
+    private final String lineSeparator = System.lineSeparator();
+    // reused from chunk to chunk
+    private final StringBuilder lines = new StringBuilder(64 * 1024);
+    private byte[] data = new byte[64 * 1024];
+
+    public CompressedFileItemWriter(String name, String outputFile, Compression compression,
+                                    LineAggregator<T> lineAggregator) {
+        super(name, outputFile);
+        this.compression = compression;
+        this.lineAggregator = lineAggregator;
+    }
+
+    @Override
+    protected byte[] encode(Chunk<? extends T> chunk) throws Exception {
+        lines.setLength(0);
+        for (T item : chunk) {
+            if (lineAggregator instanceof AppendingLineAggregator<T> appendingLineAggregator) {
+                appendingLineAggregator.aggregate(item, lines);
+            } else {
+                lines.append(lineAggregator.aggregate(item));
+            }
+            lines.append(lineSeparator);
+        }
+        if (lines.isEmpty()) {
+            return new byte[0];
+        }
+        return compression.compress(data, encode(lines));
+    }
+
+    // the lines are ASCII almost always, so the characters are copied straight into the reused byte array
+    private int encode(CharSequence text) {
+        int length = text.length();
+        if (data.length < length) {
+            data = new byte[Math.max(length, data.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                byte[] utf8 = text.toString().getBytes(StandardCharsets.UTF_8);
+                if (data.length < utf8.length) {
+                    data = new byte[utf8.length];
+                }
+                System.arraycopy(utf8, 0, data, 0, utf8.length);
+                return utf8.length;
+            }
+            data[i] = (byte) c;
+        }
+        return length;
+    }
+}
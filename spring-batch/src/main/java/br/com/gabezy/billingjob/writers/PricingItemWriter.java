@@ -0,0 +1,66 @@
+package br.com.gabezy.billingjob.writers;
+
+import br.com.gabezy.billingjob.domain.BillingData;
+import br.com.gabezy.billingjob.domain.ReportingData;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.batch.item.ItemWriter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/*
+ * Receives the whole chunk of BillingData, prices each item with the processor and writes only the reportable items
+ * (not filtered by the processor) to the delegate. Used by the fused step, whose chunks also go to the BILLING_DATA
+ * writer, so the items under the threshold can't be filtered before the writers.
+ */
+public class PricingItemWriter implements ItemStreamWriter<BillingData> {
+
+    private final ItemProcessor<BillingData, ReportingData> processor;
+    private final ItemWriter<ReportingData> delegate;
+
+    public PricingItemWriter(ItemProcessor<BillingData, ReportingData> processor, ItemWriter<ReportingData> delegate) {
+        this.processor = processor;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void write(Chunk<? extends BillingData> chunk) throws Exception {
+        List<ReportingData> reportingData = new ArrayList<>(chunk.size());
+        for (BillingData item : chunk) {
+            ReportingData priced = processor.process(item);
+            if (Objects.nonNull(priced)) {
+                reportingData.add(priced);
+            }
+        }
+        if (!reportingData.isEmpty()) {
+            delegate.write(new Chunk<>(reportingData));
+        }
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        if (delegate instanceof ItemStream stream) {
+            stream.open(executionContext);
+        }
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        if (delegate instanceof ItemStream stream) {
+            stream.update(executionContext);
+        }
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        if (delegate instanceof ItemStream stream) {
+            stream.close();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package br.com.gabezy.billingjob.writers;
+
+import br.com.gabezy.billingjob.aggregators.ReportingDataLineAggregator;
+import br.com.gabezy.billingjob.domain.BillingDataChange.Key;
+import br.com.gabezy.billingjob.domain.ReportingData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.Set;
+
+/*
+ * Patches the CSV report of the month with the rows recorded in BILLING_DATA_DELTA: when the writer is opened, the
+ * lines of the current report are copied to <output.file>.patch, except the lines of the changed rows, then the
+ * chunks append the lines of these rows (read again from BILLING_DATA and priced). The patched report replaces the
+ * report, and the delta of the month is cleared, only when the step completes.
+ *
+ * The patch is written from scratch on every execution of the step, so its state isn't saved. The new lines are
+ * appended at the end of the report: the lines of the full report aren't ordered either.
+ */
+public class ReportPatchItemWriter implements ItemStreamWriter<ReportingData>, StepExecutionListener {
+
+    public static final String PATCH_FILE_SUFFIX = ".patch";
+
+    private static final Logger log = LoggerFactory.getLogger(ReportPatchItemWriter.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int year;
+    private final int month;
+    private final Path outputFile;
+    private final Path patchFile;
+    private final ReportingDataLineAggregator lineAggregator = new ReportingDataLineAggregator();
+    private final String lineSeparator = System.lineSeparator();
+    private final StringBuilder lines = new StringBuilder(64 * 1024);
+
+    private BufferedWriter writer;
+
+    public ReportPatchItemWriter(JdbcTemplate jdbcTemplate, int year, int month, String outputFile) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.year = year;
+        this.month = month;
+        this.outputFile = Paths.get(outputFile).toAbsolutePath();
+        this.patchFile = Paths.get(outputFile + PATCH_FILE_SUFFIX).toAbsolutePath();
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        Set<Key> changedKeys = new HashSet<>();
+        jdbcTemplate.query("SELECT ACCOUNT_ID, PHONE_NUMBER FROM BILLING_DATA_DELTA " +
+                        "WHERE DATA_YEAR = ? AND DATA_MONTH = ?",
+                rs -> {
+                    changedKeys.add(new Key(rs.getInt(1), rs.getString(2)));
+                }, year, month);
+
+        long kept = 0;
+        try {
+            writer = Files.newBufferedWriter(patchFile);
+            if (Files.exists(outputFile)) {
+                try (BufferedReader reader = Files.newBufferedReader(outputFile)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (!changedKeys.contains(key(line))) {
+                            writer.write(line);
+                            writer.write(lineSeparator);
+                            kept++;
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new ItemStreamException("Failed to copy the report " + outputFile + " to " + patchFile, e);
+        }
+        log.info("Patching {}: {} lines kept, {} changed rows", outputFile, kept, changedKeys.size());
+    }
+
+    @Override
+    public void write(Chunk<? extends ReportingData> chunk) throws Exception {
+        lines.setLength(0);
+        for (ReportingData item : chunk) {
+            lineAggregator.aggregate(item, lines);
+            lines.append(lineSeparator);
+        }
+        writer.append(lines);
+        writer.flush();
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        if (stepExecution.getStatus() != BatchStatus.COMPLETED) {
+            return null;
+        }
+        try {
+            closeWriter();
+            Files.move(patchFile, outputFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new ItemStreamException("Failed to replace the report " + outputFile, e);
+        }
+        int cleared = jdbcTemplate.update("DELETE FROM BILLING_DATA_DELTA WHERE DATA_YEAR = ? AND DATA_MONTH = ?",
+                year, month);
+        log.info("Patched {} with {} changed rows", outputFile, cleared);
+        return null;
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        try {
+            closeWriter();
+        } catch (IOException e) {
+            throw new ItemStreamException("Failed to close " + patchFile, e);
+        }
+    }
+
+    private void closeWriter() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    // "dataYear,dataMonth,accountId,phoneNumber,..." (ReportingDataLineAggregator)
+    private static Key key(String line) {
+        int accountStart = line.indexOf(',', line.indexOf(',') + 1) + 1;
+        int phoneStart = line.indexOf(',', accountStart) + 1;
+        int phoneEnd = line.indexOf(',', phoneStart);
+        return new Key(Integer.parseInt(line, accountStart, phoneStart - 1, 10), line.substring(phoneStart, phoneEnd));
+    }
+}
@@ -0,0 +1,34 @@
+package br.com.gabezy.billingjob.writers;
+
+import br.com.gabezy.billingjob.aggregators.ReportingDataLineAggregator;
+import br.com.gabezy.billingjob.domain.ReportingData;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.file.FlatFileItemWriter;
+
+/*
+ * FlatFileItemWriter of the CSV report that formats the whole chunk into one StringBuilder, reused from chunk to
+ * chunk, so the only String created per chunk is the block handed to the (transactional) buffered writer, which
+ * writes and flushes it once per chunk.
+ */
+public class ReportingDataFileItemWriter extends FlatFileItemWriter<ReportingData> {
+
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+
+    private final ReportingDataLineAggregator reportLineAggregator = new ReportingDataLineAggregator();
+    private final StringBuilder lines = new StringBuilder(INITIAL_CAPACITY);
+
+    public ReportingDataFileItemWriter() {
+        setLineAggregator(reportLineAggregator);
+    }
+
+    // called by write(), which is synchronized by the SynchronizedItemStreamWriter in the multi-threaded steps
+    @Override
+    public String doWrite(Chunk<? extends ReportingData> items) {
+        lines.setLength(0);
+        for (ReportingData item : items) {
+            reportLineAggregator.aggregate(item, lines);
+            lines.append(this.lineSeparator);
+        }
+        return lines.toString();
+    }
+}
@@ -0,0 +1,110 @@
+package br.com.gabezy.billingjob.writers;
+
+import br.com.gabezy.billingjob.domain.ReportingData;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.batch.item.ItemWriter;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Fans the priced items of a chunk out to one report per spending threshold (tier). Each item is classified once by
+ * its billing total into the highest tier it reaches, and is written to the writer of that tier and of every lower
+ * tier, so the report of a tier has the same lines of a run of the job with spending.threshold set to the tier.
+ * The items under the lowest tier are dropped (the processor should already filter them).
+ *
+ * The thresholds must be in ascending order, one writer per threshold.
+ */
+public class TieredReportItemWriter implements ItemStreamWriter<ReportingData> {
+
+    private final float[] thresholds;
+    private final List<? extends ItemWriter<ReportingData>> writers;
+
+    public TieredReportItemWriter(float[] thresholds, List<? extends ItemWriter<ReportingData>> writers) {
+        if (thresholds.length == 0 || thresholds.length != writers.size()) {
+            throw new IllegalArgumentException("One writer per threshold is required: " + thresholds.length +
+                    " thresholds, " + writers.size() + " writers");
+        }
+        for (int i = 1; i < thresholds.length; i++) {
+            if (thresholds[i] <= thresholds[i - 1]) {
+                throw new IllegalArgumentException("Thresholds must be ascending: " + thresholds[i - 1] + ", " +
+                        thresholds[i]);
+            }
+        }
+        this.thresholds = thresholds.clone();
+        this.writers = writers;
+    }
+
+    // "billing-report-2023-01.csv.gz" and 500 -> "billing-report-2023-01-500.csv.gz", the extensions are kept
+    public static String tierFile(String outputFile, float threshold) {
+        Path path = Paths.get(outputFile);
+        String fileName = path.getFileName().toString();
+        int extension = fileName.indexOf('.');
+        String tier = threshold == (long) threshold ? Long.toString((long) threshold) : Float.toString(threshold);
+        String tierFileName = extension < 0
+                ? fileName + "-" + tier
+                : fileName.substring(0, extension) + "-" + tier + fileName.substring(extension);
+        return path.resolveSibling(tierFileName).toString();
+    }
+
+    @Override
+    public void write(Chunk<? extends ReportingData> chunk) throws Exception {
+        List<List<ReportingData>> tiers = new ArrayList<>(thresholds.length);
+        for (int i = 0; i < thresholds.length; i++) {
+            tiers.add(new ArrayList<>(chunk.size()));
+        }
+        for (ReportingData item : chunk) {
+            int tier = tier(item.billingTotal());
+            for (int i = 0; i <= tier; i++) {
+                tiers.get(i).add(item);
+            }
+        }
+        for (int i = 0; i < thresholds.length; i++) {
+            if (!tiers.get(i).isEmpty()) {
+                writers.get(i).write(new Chunk<>(tiers.get(i)));
+            }
+        }
+    }
+
+    // highest tier reached by the total, -1 when under every threshold (same comparison of the BillingDataProcessor)
+    private int tier(double billingTotal) {
+        int tier = thresholds.length - 1;
+        while (tier >= 0 && billingTotal < thresholds[tier]) {
+            tier--;
+        }
+        return tier;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        for (ItemWriter<ReportingData> writer : writers) {
+            if (writer instanceof ItemStream stream) {
+                stream.open(executionContext);
+            }
+        }
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        for (ItemWriter<ReportingData> writer : writers) {
+            if (writer instanceof ItemStream stream) {
+                stream.update(executionContext);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        for (ItemWriter<ReportingData> writer : writers) {
+            if (writer instanceof ItemStream stream) {
+                stream.close();
+            }
+        }
+    }
+}
@@ -7,4 +7,38 @@ create table BILLING_DATA
     DATA_USAGE    FLOAT,
     CALL_DURATION INTEGER,
     SMS_COUNT     INTEGER
-);
\ No newline at end of file
+);
+
+-- keyset pagination of the reportGeneration step (spring.cellular.report.reader: paging)
+create index BILLING_DATA_KEYSET_IDX on BILLING_DATA (DATA_YEAR, DATA_MONTH, ACCOUNT_ID, PHONE_NUMBER);
+
+-- incremental ingestion (spring.cellular.ingestion.incremental: true): fingerprint of the last ingested values of
+-- each row, and keys of the rows changed since the last report
+create table BILLING_DATA_FINGERPRINT
+(
+    DATA_YEAR    INTEGER     NOT NULL,
+    DATA_MONTH   INTEGER     NOT NULL,
+    ACCOUNT_ID   INTEGER     NOT NULL,
+    PHONE_NUMBER VARCHAR(12) NOT NULL,
+    FINGERPRINT  BIGINT      NOT NULL,
+    primary key (DATA_YEAR, DATA_MONTH, ACCOUNT_ID, PHONE_NUMBER)
+);
+
+create table BILLING_DATA_DELTA
+(
+    DATA_YEAR    INTEGER,
+    DATA_MONTH   INTEGER,
+    ACCOUNT_ID   INTEGER,
+    PHONE_NUMBER VARCHAR(12)
+);
+
+create index BILLING_DATA_DELTA_IDX on BILLING_DATA_DELTA (DATA_YEAR, DATA_MONTH, ACCOUNT_ID, PHONE_NUMBER);
+
+-- lines of the billing files skipped by the ingestion (spring.cellular.skip.quarantine: true)
+create table BILLING_DATA_QUARANTINE
+(
+    JOB_EXECUTION_ID BIGINT,
+    LINE_NUMBER      INTEGER,
+    RAW_LINE         VARCHAR(2500),
+    ERROR_MESSAGE    VARCHAR(2500)
+);
@@ -0,0 +1,18 @@
+-- BILLING_DATA split in one partition per month (spring.cellular.storage.partitioned: true).
+-- The partitions are created (or truncated, when the month is run again) by the cleanupBillingTable step:
+--   CREATE TABLE BILLING_DATA_2023_01 PARTITION OF BILLING_DATA FOR VALUES FROM (2023, 1) TO (2023, 2);
+DROP TABLE IF EXISTS BILLING_DATA;
+
+CREATE TABLE BILLING_DATA
+(
+    DATA_YEAR     INTEGER NOT NULL,
+    DATA_MONTH    INTEGER NOT NULL,
+    ACCOUNT_ID    INTEGER,
+    PHONE_NUMBER  VARCHAR(12),
+    DATA_USAGE    FLOAT,
+    CALL_DURATION INTEGER,
+    SMS_COUNT     INTEGER
+) PARTITION BY RANGE (DATA_YEAR, DATA_MONTH);
+
+-- created on every partition
+CREATE INDEX BILLING_DATA_KEYSET_IDX ON BILLING_DATA (DATA_YEAR, DATA_MONTH, ACCOUNT_ID, PHONE_NUMBER);
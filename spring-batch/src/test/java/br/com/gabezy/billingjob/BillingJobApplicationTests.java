@@ -12,6 +12,7 @@ import org.springframework.batch.test.context.SpringBatchTest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.jdbc.JdbcTestUtils;
 
 import java.nio.file.Files;
@@ -20,6 +21,7 @@ import java.nio.file.Paths;
 
 @SpringBootTest
 @SpringBatchTest
+@ActiveProfiles("h2")
 //@ExtendWith(OutputCaptureExtension.class) // to capture the output message CapturedOutput output
 class BillingJobApplicationTests {
 
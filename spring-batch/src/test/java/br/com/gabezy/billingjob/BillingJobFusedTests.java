@@ -0,0 +1,92 @@
+package br.com.gabezy.billingjob;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.batch.test.JobRepositoryTestUtils;
+import org.springframework.batch.test.context.SpringBatchTest;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.jdbc.JdbcTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+@SpringBootTest(properties = "spring.cellular.fused=true")
+@SpringBatchTest
+@ActiveProfiles("h2")
+class BillingJobFusedTests {
+
+    @Autowired
+    private JobLauncherTestUtils jobLauncherTestUtils;
+
+    @Autowired
+    private JobRepositoryTestUtils jobRepositoryTestUtils;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void setUpEach() {
+        this.jobRepositoryTestUtils.removeJobExecutions();
+        JdbcTestUtils.deleteFromTables(jdbcTemplate, "BILLING_DATA");
+    }
+
+    @Test
+    void testFusedStepIngestsAndWritesTheReport() throws Exception {
+        // Given
+        Path report = directory.resolve("billing-report.csv");
+
+        // When
+        JobExecution jobExecution = this.jobLauncherTestUtils.launchJob(jobParameters(report));
+
+        // Then
+        Assertions.assertEquals(BatchStatus.COMPLETED, jobExecution.getStatus());
+        Assertions.assertEquals(List.of("filePreparation", "incrementalStateCleanup", "fileIngestionAndReport"),
+                jobExecution.getStepExecutions().stream().map(StepExecution::getStepName).toList());
+        Assertions.assertEquals(1000, JdbcTestUtils.countRowsInTable(jdbcTemplate, "BILLING_DATA"));
+        Assertions.assertEquals(Files.readAllLines(Path.of("staging/billing-report-2023-01.csv")),
+                Files.readAllLines(report));
+    }
+
+    @Test
+    void testFusedModeRefusesTheReportOptions() {
+        // When
+        BeanCreationException exception = Assertions.assertThrows(BeanCreationException.class, () ->
+                new SpringApplicationBuilder(BillingJobApplication.class)
+                        .profiles("h2")
+                        .run("--spring.cellular.fused=true", "--spring.cellular.report.pushdown=true",
+                                "--spring.cellular.report.async.enabled=true")
+                        .close());
+
+        // Then
+        Throwable cause = exception.getMostSpecificCause();
+        Assertions.assertInstanceOf(IllegalStateException.class, cause);
+        Assertions.assertTrue(cause.getMessage().contains(
+                "spring.cellular.report.async.enabled, spring.cellular.report.pushdown"), cause.getMessage());
+    }
+
+    private JobParameters jobParameters(Path report) {
+        return this.jobLauncherTestUtils.getUniqueJobParametersBuilder()
+                .addString("input.file", "input/billing-2023-01.csv")
+                .addString("output.file", report.toString())
+                .addString("skip.file", report + ".skip.psv")
+                .addJobParameter("data.year", 2023, Integer.class)
+                .addJobParameter("data.month", 1, Integer.class)
+                .toJobParameters();
+    }
+}
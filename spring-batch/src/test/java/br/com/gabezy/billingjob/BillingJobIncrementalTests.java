@@ -0,0 +1,88 @@
+package br.com.gabezy.billingjob;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.jdbc.JdbcTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.UUID;
+
+// the ingestion mode is chosen when the job is created, so each run has its own application context on one database
+class BillingJobIncrementalTests {
+
+    @TempDir
+    Path directory;
+
+    private final String databaseUrl = "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+    // the billing schema is created by the first context only
+    private boolean initialized;
+
+    @Test
+    void testIncrementalRunAfterAFullRunStartsFromABaseline() throws Exception {
+        // Given
+        Path report = directory.resolve("billing-report.csv");
+        Assertions.assertEquals(BatchStatus.COMPLETED, runJob(true, report, 1000));
+
+        // When: the full run of the same month doesn't delete the rows without the partitioned storage
+        Assertions.assertEquals(BatchStatus.COMPLETED, runJob(false, report, 2000));
+        BatchStatus status = runJob(true, report, 1000);
+
+        // Then
+        Assertions.assertEquals(BatchStatus.COMPLETED, status);
+        List<String> expected = Files.readAllLines(Paths.get("staging", "billing-report-2023-01.csv"));
+        List<String> lines = Files.readAllLines(report);
+        Assertions.assertEquals(expected.stream().sorted().toList(), lines.stream().sorted().toList());
+    }
+
+    @Test
+    void testIncrementalModeRefusesTheFullIngestionOptions() {
+        // When
+        BeanCreationException exception = Assertions.assertThrows(BeanCreationException.class, () ->
+                new SpringApplicationBuilder(BillingJobApplication.class)
+                        .profiles("h2")
+                        .run("--spring.cellular.ingestion.incremental=true", "--spring.cellular.fused=true",
+                                "--spring.cellular.report.tiers=500", "--spring.cellular.report.threads=4")
+                        .close());
+
+        // Then
+        Throwable cause = exception.getMostSpecificCause();
+        Assertions.assertInstanceOf(IllegalStateException.class, cause);
+        Assertions.assertTrue(cause.getMessage().contains("spring.cellular.fused, spring.cellular.report.tiers, " +
+                "spring.cellular.report.threads"), cause.getMessage());
+    }
+
+    private BatchStatus runJob(boolean incremental, Path outputFile, int expectedRows) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BillingJobApplication.class)
+                .profiles("h2")
+                .run("--spring.datasource.url=" + databaseUrl,
+                        "--spring.sql.init.mode=" + (initialized ? "never" : "always"),
+                        "--spring.cellular.ingestion.incremental=" + incremental)) {
+            initialized = true;
+            JobExecution jobExecution = context.getBean(JobLauncher.class).run(context.getBean(Job.class),
+                    new JobParametersBuilder()
+                            .addString("input.file", "input/billing-2023-01.csv")
+                            .addString("output.file", outputFile.toString())
+                            .addString("skip.file", outputFile + ".skip.psv")
+                            .addJobParameter("data.year", 2023, Integer.class)
+                            .addJobParameter("data.month", 1, Integer.class)
+                            .addLong("run", System.nanoTime())
+                            .toJobParameters());
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            Assertions.assertEquals(expectedRows, JdbcTestUtils.countRowsInTable(jdbcTemplate, "BILLING_DATA"));
+            return jobExecution.getStatus();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package br.com.gabezy.billingjob;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.batch.test.JobRepositoryTestUtils;
+import org.springframework.batch.test.context.SpringBatchTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.jdbc.JdbcTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@SpringBootTest(properties = "spring.cellular.report.reader=paging")
+@SpringBatchTest
+@ActiveProfiles("h2")
+class BillingJobPagingTests {
+
+    @Autowired
+    private JobLauncherTestUtils jobLauncherTestUtils;
+
+    @Autowired
+    private JobRepositoryTestUtils jobRepositoryTestUtils;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void setUpEach() {
+        this.jobRepositoryTestUtils.removeJobExecutions();
+        JdbcTestUtils.deleteFromTables(jdbcTemplate, "BILLING_DATA");
+    }
+
+    @Test
+    void testPagingReaderWritesTheWholeMonth() throws Exception {
+        // Given
+        Path report = directory.resolve("billing-report.csv");
+
+        // When
+        JobExecution jobExecution = this.jobLauncherTestUtils.launchJob(jobParameters(report));
+
+        // Then
+        Assertions.assertEquals(BatchStatus.COMPLETED, jobExecution.getStatus());
+        Assertions.assertEquals(781, Files.readAllLines(report).size());
+    }
+
+    @Test
+    void testPagingReaderRefusesAMonthWithDuplicatedKeys() throws Exception {
+        // Given: the month ingested twice, without the partitioned storage the rows of the first run are kept
+        Path report = directory.resolve("billing-report.csv");
+        this.jobLauncherTestUtils.launchJob(jobParameters(report));
+
+        // When
+        JobExecution jobExecution = this.jobLauncherTestUtils.launchJob(jobParameters(report));
+
+        // Then
+        Assertions.assertEquals(2000, JdbcTestUtils.countRowsInTable(jdbcTemplate, "BILLING_DATA"));
+        Assertions.assertEquals(BatchStatus.FAILED, jobExecution.getStatus());
+        StepExecution reportGeneration = jobExecution.getStepExecutions().stream()
+                .filter(stepExecution -> stepExecution.getStepName().equals("reportGeneration"))
+                .findFirst()
+                .orElseThrow();
+        Assertions.assertEquals(BatchStatus.FAILED, reportGeneration.getStatus());
+        Assertions.assertTrue(jobExecution.getAllFailureExceptions().stream()
+                .anyMatch(exception -> String.valueOf(exception.getMessage()).contains("report.reader=cursor")));
+    }
+
+    private JobParameters jobParameters(Path report) {
+        return this.jobLauncherTestUtils.getUniqueJobParametersBuilder()
+                .addString("input.file", "input/billing-2023-01.csv")
+                .addString("output.file", report.toString())
+                .addString("skip.file", report + ".skip.psv")
+                .addJobParameter("data.year", 2023, Integer.class)
+                .addJobParameter("data.month", 1, Integer.class)
+                .toJobParameters();
+    }
+}
@@ -0,0 +1,58 @@
+package br.com.gabezy.billingjob;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+// the pushdown is chosen when the job is created, so each run has its own application context and database
+class BillingJobPushdownTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testPushdownWritesTheSameReport() throws Exception {
+        // Given
+        Path report = directory.resolve("billing-report.csv");
+        Path pushdownReport = directory.resolve("billing-report-pushdown.csv");
+
+        // When
+        BatchStatus status = runJob(false, report);
+        BatchStatus pushdownStatus = runJob(true, pushdownReport);
+
+        // Then
+        Assertions.assertEquals(BatchStatus.COMPLETED, status);
+        Assertions.assertEquals(BatchStatus.COMPLETED, pushdownStatus);
+        List<String> lines = Files.readAllLines(report);
+        Assertions.assertEquals(781, lines.size());
+        Assertions.assertEquals(lines, Files.readAllLines(pushdownReport));
+    }
+
+    // the h2 profile gives each context a database with a random name
+    private static BatchStatus runJob(boolean pushdown, Path outputFile) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BillingJobApplication.class)
+                .profiles("h2")
+                .run("--spring.cellular.report.pushdown=" + pushdown)) {
+            JobExecution jobExecution = context.getBean(JobLauncher.class).run(context.getBean(Job.class),
+                    new JobParametersBuilder()
+                            .addString("input.file", "input/billing-2023-01.csv")
+                            .addString("output.file", outputFile.toString())
+                            .addString("skip.file", outputFile + ".skip.psv")
+                            .addJobParameter("data.year", 2023, Integer.class)
+                            .addJobParameter("data.month", 1, Integer.class)
+                            .toJobParameters());
+            return jobExecution.getStatus();
+        }
+    }
+}
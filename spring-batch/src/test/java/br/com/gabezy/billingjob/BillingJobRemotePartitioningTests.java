@@ -0,0 +1,75 @@
+package br.com.gabezy.billingjob;
+
+import br.com.gabezy.billingjob.config.RemotePartitioningConfig;
+import br.com.gabezy.billingjob.partitioners.AccountRangePartitioner;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+// the remote partitioning is chosen when the job is created, so each run has its own application context
+class BillingJobRemotePartitioningTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testRemotePartitionsAreMergedIntoTheSameReport() throws Exception {
+        // Given
+        Path report = directory.resolve("billing-report.csv");
+        Path remoteReport = directory.resolve("billing-report-remote.csv");
+
+        // When
+        JobExecution jobExecution = runJob(false, report);
+        JobExecution remoteJobExecution = runJob(true, remoteReport);
+
+        // Then
+        Assertions.assertEquals(BatchStatus.COMPLETED, jobExecution.getStatus());
+        Assertions.assertEquals(BatchStatus.COMPLETED, remoteJobExecution.getStatus());
+        List<StepExecution> workers = remoteJobExecution.getStepExecutions().stream()
+                .filter(stepExecution -> stepExecution.getStepName()
+                        .startsWith(RemotePartitioningConfig.WORKER_STEP_NAME))
+                .toList();
+        Assertions.assertEquals(4, workers.size());
+        Assertions.assertTrue(workers.stream().allMatch(worker -> worker.getStatus() == BatchStatus.COMPLETED));
+        List<String> lines = Files.readAllLines(report);
+        Assertions.assertEquals(781, lines.size());
+        Assertions.assertEquals(lines, Files.readAllLines(remoteReport));
+        try (Stream<Path> files = Files.list(directory)) {
+            Assertions.assertTrue(files.noneMatch(file ->
+                    file.toString().startsWith(remoteReport + AccountRangePartitioner.PARTITION_FILE_SUFFIX)));
+        }
+    }
+
+    // each context has its own in-memory database (the URL of the h2 profile has a random name)
+    private static JobExecution runJob(boolean remote, Path outputFile) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BillingJobApplication.class)
+                .profiles("h2")
+                .run("--spring.cellular.report.remote.enabled=" + remote,
+                        "--spring.cellular.report.remote.poll-interval=PT0.1S")) {
+            JobExecution jobExecution = context.getBean(JobLauncher.class).run(context.getBean(Job.class),
+                    new JobParametersBuilder()
+                            .addString("input.file", "input/billing-2023-01.csv")
+                            .addString("output.file", outputFile.toString())
+                            .addString("skip.file", outputFile + ".skip.psv")
+                            .addJobParameter("data.year", 2023, Integer.class)
+                            .addJobParameter("data.month", 1, Integer.class)
+                            .toJobParameters());
+            // the step executions of the workers are only in the job repository
+            return context.getBean(JobExplorer.class).getJobExecution(jobExecution.getId());
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package br.com.gabezy.billingjob;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+
+class BillingJobTieredTests {
+
+    @Test
+    void testTiersAreRefusedByTheReportsWithoutThem() {
+        // When
+        BeanCreationException exception = Assertions.assertThrows(BeanCreationException.class, () ->
+                new SpringApplicationBuilder(BillingJobApplication.class)
+                        .profiles("h2")
+                        .run("--spring.cellular.report.tiers=500,1000", "--spring.cellular.report.partitioned=true",
+                                "--spring.cellular.report.async.enabled=true")
+                        .close());
+
+        // Then
+        Throwable cause = exception.getMostSpecificCause();
+        Assertions.assertInstanceOf(IllegalStateException.class, cause);
+        Assertions.assertTrue(cause.getMessage().contains("[500.0, 1000.0]"), cause.getMessage());
+        Assertions.assertTrue(cause.getMessage().contains(
+                "spring.cellular.report.partitioned, spring.cellular.report.async.enabled"), cause.getMessage());
+    }
+}
@@ -0,0 +1,111 @@
+package br.com.gabezy.billingjob.aggregators;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+class AccountTotalsTests {
+
+    @Test
+    void testAddGrowsAndSortsByAccount() throws Exception {
+        // Given
+        AccountTotals totals = new AccountTotals(100_000);
+
+        // When
+        for (int accountId = 5_000; accountId > -5_000; accountId--) {
+            totals.add(accountId, 1.5f, 10, 2, 3.0);
+            totals.add(accountId, 0.5f, 5, 1, 1.0);
+        }
+        List<Integer> accountIds = new ArrayList<>();
+        totals.forEachSorted((accountId, lines, dataUsage, callDuration, smsCount, billingTotal) -> {
+            accountIds.add(accountId);
+            Assertions.assertEquals(2, lines);
+            Assertions.assertEquals(2.0, dataUsage);
+            Assertions.assertEquals(15, callDuration);
+            Assertions.assertEquals(3, smsCount);
+            Assertions.assertEquals(4.0, billingTotal);
+        });
+
+        // Then
+        Assertions.assertEquals(10_000, totals.size());
+        Assertions.assertEquals(10_000, accountIds.size());
+        Assertions.assertEquals(-4_999, accountIds.get(0));
+        Assertions.assertEquals(5_000, accountIds.get(accountIds.size() - 1));
+        for (int i = 1; i < accountIds.size(); i++) {
+            Assertions.assertTrue(accountIds.get(i - 1) < accountIds.get(i));
+        }
+    }
+
+    @Test
+    void testSpillAndReadBackAfterClear() throws Exception {
+        // Given
+        AccountTotals totals = new AccountTotals(3);
+        totals.add(30, 3f, 3, 3, 3.0);
+        totals.add(10, 1f, 1, 1, 1.0);
+        totals.add(20, 2f, 2, 2, 2.0);
+        ByteArrayOutputStream run = new ByteArrayOutputStream();
+
+        // When
+        Assertions.assertTrue(totals.isFull());
+        try (DataOutputStream output = new DataOutputStream(run)) {
+            totals.forEachSorted((accountId, lines, dataUsage, callDuration, smsCount, billingTotal) ->
+                    AccountTotals.write(output, accountId, lines, dataUsage, callDuration, smsCount, billingTotal));
+        }
+        totals.clear();
+        totals.add(10, 5f, 5, 5, 5.0);
+
+        // Then
+        Assertions.assertEquals(1, totals.size());
+        totals.forEachSorted((accountId, lines, dataUsage, callDuration, smsCount, billingTotal) -> {
+            Assertions.assertEquals(1, lines);
+            Assertions.assertEquals(5.0, billingTotal);
+        });
+        AccountTotals.Cursor cursor = new AccountTotals.Cursor(
+                new DataInputStream(new ByteArrayInputStream(run.toByteArray())), 3);
+        List<Integer> accountIds = new ArrayList<>();
+        while (cursor.next()) {
+            accountIds.add(cursor.accountId);
+            Assertions.assertEquals(cursor.accountId / 10.0, cursor.billingTotal);
+        }
+        Assertions.assertEquals(List.of(10, 20, 30), accountIds);
+    }
+
+    @Test
+    void testMaxAccountsFitTheBudgetWhileGrowing() {
+        for (long budget : new long[]{1_000, 1 << 20, 64L << 20, 1L << 30}) {
+            // When
+            int maxAccounts = AccountTotals.maxAccounts(budget);
+
+            // Then: the largest table (a power of two, load factor 0.5) and the previous table copied into it
+            long capacity = Long.highestOneBit(2L * maxAccounts - 1) << 1;
+            Assertions.assertTrue(capacity * AccountTotals.SLOT_BYTES * 3 / 2 <= budget, "budget " + budget);
+            Assertions.assertTrue((long) maxAccounts * 6 * AccountTotals.SLOT_BYTES > budget, "budget " + budget);
+        }
+    }
+
+    @Test
+    void testNewAccountOfAFullMapIsRefused() throws Exception {
+        // Given
+        AccountTotals totals = new AccountTotals(5);
+        for (int accountId = 0; accountId < 5; accountId++) {
+            totals.add(accountId, 1f, 1, 1, 1.0);
+        }
+
+        // When
+        totals.add(4, 1f, 1, 1, 1.0);
+
+        // Then
+        Assertions.assertTrue(totals.isFull());
+        Assertions.assertThrows(IllegalStateException.class, () -> totals.add(5, 1f, 1, 1, 1.0));
+        List<Long> lines = new ArrayList<>();
+        totals.forEachSorted((accountId, accountLines, dataUsage, callDuration, smsCount, billingTotal) ->
+                lines.add(accountLines));
+        Assertions.assertEquals(List.of(1L, 1L, 1L, 1L, 2L), lines);
+    }
+}
@@ -0,0 +1,39 @@
+package br.com.gabezy.billingjob.aggregators;
+
+import br.com.gabezy.billingjob.domain.BillingData;
+import br.com.gabezy.billingjob.domain.ReportingData;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.file.transform.BeanWrapperFieldExtractor;
+import org.springframework.batch.item.file.transform.DelimitedLineAggregator;
+
+import java.util.Random;
+
+class ReportingDataLineAggregatorTests {
+
+    @Test
+    void testFormatsLikeDelimitedBuilder() {
+        // Given
+        BeanWrapperFieldExtractor<ReportingData> fieldExtractor = new BeanWrapperFieldExtractor<>();
+        fieldExtractor.setNames(new String[]{"billingData.dataYear", "billingData.dataMonth", "billingData.accountId",
+                "billingData.phoneNumber", "billingData.dataUsage", "billingData.callDuration", "billingData.smsCount",
+                "billingTotal"});
+        DelimitedLineAggregator<ReportingData> delimitedLineAggregator = new DelimitedLineAggregator<>();
+        delimitedLineAggregator.setFieldExtractor(fieldExtractor);
+        ReportingDataLineAggregator lineAggregator = new ReportingDataLineAggregator();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 10_000; i++) {
+            BillingData billingData = new BillingData(2023, 1 + random.nextInt(12), random.nextInt(),
+                    "555-" + random.nextInt(10_000), random.nextFloat() * 1e6f - 1e3f, random.nextInt(1000),
+                    random.nextInt(100));
+            ReportingData item = new ReportingData(billingData, random.nextDouble() * 1e7);
+
+            // When
+            String line = lineAggregator.aggregate(item);
+
+            // Then
+            Assertions.assertEquals(delimitedLineAggregator.aggregate(item), line);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package br.com.gabezy.billingjob.domain;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class BillingDataChangeTests {
+
+    @Test
+    void testFingerprintChangesWithEveryField() {
+        // Given
+        BillingData billingData = new BillingData(2023, 1, 100, "404-555-1000", 24.4f, 115, 323);
+        List<BillingData> changes = List.of(
+                new BillingData(2024, 1, 100, "404-555-1000", 24.4f, 115, 323),
+                new BillingData(2023, 2, 100, "404-555-1000", 24.4f, 115, 323),
+                new BillingData(2023, 1, 101, "404-555-1000", 24.4f, 115, 323),
+                new BillingData(2023, 1, 100, "404-555-1001", 24.4f, 115, 323),
+                new BillingData(2023, 1, 100, "404-555-1000", 24.41f, 115, 323),
+                new BillingData(2023, 1, 100, "404-555-1000", 24.4f, 116, 323),
+                new BillingData(2023, 1, 100, "404-555-1000", 24.4f, 115, 324));
+
+        // When
+        long fingerprint = BillingDataChange.fingerprint(billingData);
+
+        // Then
+        Assertions.assertEquals(fingerprint, BillingDataChange.fingerprint(
+                new BillingData(2023, 1, 100, "404-555-1000", 24.4f, 115, 323)));
+        for (BillingData change : changes) {
+            Assertions.assertNotEquals(fingerprint, BillingDataChange.fingerprint(change), change.toString());
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package br.com.gabezy.billingjob.listeners;
+
+import br.com.gabezy.billingjob.partitioners.BillingFilePartitioner;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+class BillingDataSkipListenerTests {
+
+    @TempDir
+    Path directory;
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private Path skipFile;
+
+    @BeforeEach
+    void setUpEach() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("schema-billing.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(database));
+        skipFile = directory.resolve("billing-skip.psv");
+    }
+
+    @AfterEach
+    void tearDownEach() {
+        database.shutdown();
+    }
+
+    @Test
+    void testSkippedLinesOfAChunkAreAppendedAfterTheCommit() throws Exception {
+        // Given
+        BillingDataSkipListener listener = new BillingDataSkipListener(skipFile.toString());
+        listener.beforeStep(stepExecution(null, 0));
+
+        // When
+        transactionTemplate.executeWithoutResult(status -> {
+            listener.onSkipInRead(new FlatFileParseException("Parsing error", "2023,01,bad", 3));
+            listener.onSkipInRead(new FlatFileParseException("Parsing error", "2023,01,worse", 7));
+            // Then: nothing is written before the commit
+            Assertions.assertFalse(Files.exists(skipFile));
+        });
+        transactionTemplate.executeWithoutResult(status -> {
+            listener.onSkipInRead(new FlatFileParseException("Parsing error", "2023,01,rolled-back", 9));
+            status.setRollbackOnly();
+        });
+        transactionTemplate.executeWithoutResult(status ->
+                listener.onSkipInRead(new FlatFileParseException("Parsing error", "2023,01,last", 12)));
+        listener.afterStep(stepExecution(null, 0));
+
+        // Then
+        Assertions.assertEquals(List.of("3|2023,01,bad", "7|2023,01,worse", "12|2023,01,last"),
+                Files.readAllLines(skipFile));
+    }
+
+    @Test
+    void testSkippedLinesAreQuarantinedWithTheChunk() throws Exception {
+        // Given: a file partition starting after 1000 lines
+        Path inputFile = Files.write(directory.resolve("billing.csv"), Collections.nCopies(1000, "2023,01,line"));
+        StepExecution partition = stepExecution(inputFile, Files.size(inputFile));
+        BillingDataSkipListener listener = new BillingDataSkipListener(skipFile.toString(), jdbcTemplate);
+        listener.beforeStep(partition);
+
+        // When
+        transactionTemplate.executeWithoutResult(status ->
+                listener.onSkipInRead(new FlatFileParseException("Parsing error", "2023,01,bad", 3)));
+        transactionTemplate.executeWithoutResult(status -> {
+            listener.onSkipInRead(new FlatFileParseException("Parsing error", "2023,01,rolled-back", 9));
+            status.setRollbackOnly();
+        });
+        listener.afterStep(partition);
+
+        // Then
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList("SELECT * FROM BILLING_DATA_QUARANTINE");
+        Assertions.assertEquals(1, rows.size());
+        Assertions.assertEquals(7L, ((Number) rows.get(0).get("JOB_EXECUTION_ID")).longValue());
+        Assertions.assertEquals(1003, ((Number) rows.get(0).get("LINE_NUMBER")).intValue());
+        Assertions.assertEquals("2023,01,bad", rows.get(0).get("RAW_LINE"));
+        Assertions.assertEquals("Parsing error", rows.get(0).get("ERROR_MESSAGE"));
+        Assertions.assertEquals(List.of("1003|2023,01,bad"), Files.readAllLines(skipFile));
+    }
+
+    @Test
+    void testSkipFileIsOptional() {
+        // Given: no skip.file parameter
+        BillingDataSkipListener listener = new BillingDataSkipListener(null, jdbcTemplate);
+        listener.beforeStep(stepExecution(null, 0));
+
+        // When
+        transactionTemplate.executeWithoutResult(status ->
+                listener.onSkipInRead(new FlatFileParseException("Parsing error", "2023,01,bad", 3)));
+        listener.onSkipInRead(new FlatFileParseException("Parsing error", "2023,01,outside-a-chunk", 5));
+        listener.afterStep(stepExecution(null, 0));
+
+        // Then
+        Assertions.assertEquals(2, JdbcTestUtils.countRowsInTable(jdbcTemplate, "BILLING_DATA_QUARANTINE"));
+    }
+
+    private static StepExecution stepExecution(Path inputFile, long startOffset) {
+        JobExecution jobExecution = MetaDataInstanceFactory.createJobExecution("BillingJob", 1L, 7L);
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution(jobExecution, "fileIngestion", 1L);
+        if (inputFile != null) {
+            stepExecution.getExecutionContext().putString(BillingFilePartitioner.INPUT_FILE_KEY, inputFile.toString());
+            stepExecution.getExecutionContext().putLong(BillingFilePartitioner.START_OFFSET_KEY, startOffset);
+        }
+        return stepExecution;
+    }
+}
@@ -0,0 +1,55 @@
+package br.com.gabezy.billingjob.mappers;
+
+import br.com.gabezy.billingjob.domain.BillingData;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.batch.item.file.mapping.RecordFieldSetMapper;
+import org.springframework.batch.item.file.transform.DelimitedLineTokenizer;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+
+class BillingDataLineMapperTests {
+
+    private final BillingDataLineMapper lineMapper = new BillingDataLineMapper();
+
+    @Test
+    void testSameResultAsDelimitedMapping() throws Exception {
+        // Given
+        DelimitedLineTokenizer tokenizer = new DelimitedLineTokenizer();
+        tokenizer.setNames("dataYear", "dataMonth", "accountId", "phoneNumber", "dataUsage", "callDuration", "smsCount");
+        RecordFieldSetMapper<BillingData> fieldSetMapper = new RecordFieldSetMapper<>(BillingData.class);
+        List<String> lines = Files.readAllLines(Paths.get("input", "billing-2023-01.csv"));
+
+        // Then
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            Assertions.assertEquals(fieldSetMapper.mapFieldSet(tokenizer.tokenize(line)), lineMapper.mapLine(line, i + 1));
+        }
+        Assertions.assertEquals(new BillingData(2023, 1, 100, "404-555-1000", 24.40f, 115, 323),
+                lineMapper.mapLine("2023,01,100,\"404-555-1000\",24.40,115,323", 1));
+    }
+
+    @Test
+    void testSameFloatsAsParseFloat() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            String value = random.nextInt(100_000) + "." + random.nextInt(100);
+            Assertions.assertEquals(Float.parseFloat(value), BillingDataLineMapper.parseFloat(value, 0, value.length()), value);
+        }
+    }
+
+    @Test
+    void testInvalidLineRaisesFlatFileParseException() {
+        FlatFileParseException exception = Assertions.assertThrows(FlatFileParseException.class,
+                () -> lineMapper.mapLine("2023,03,325,404-555-1225,92-94,375,544", 226));
+
+        Assertions.assertEquals(226, exception.getLineNumber());
+        Assertions.assertEquals("2023,03,325,404-555-1225,92-94,375,544", exception.getInput());
+        Assertions.assertThrows(FlatFileParseException.class, () -> lineMapper.mapLine("2023,03,325,404-555-1225", 1));
+    }
+
+}
@@ -0,0 +1,62 @@
+package br.com.gabezy.billingjob.partitioners;
+
+import br.com.gabezy.billingjob.readers.FileRangeResource;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+
+class BillingFilePartitionerTests {
+
+    private static final String INPUT_FILE = "input/billing-2023-01.csv";
+
+    @Test
+    void testPartitionsCoverWholeFileOnLineBoundaries() throws Exception {
+        // Given
+        BillingFilePartitioner partitioner = new BillingFilePartitioner(INPUT_FILE);
+
+        // When
+        Map<String, ExecutionContext> partitions = partitioner.partition(4);
+
+        // Then
+        Assertions.assertEquals(4, partitions.size());
+
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        for (ExecutionContext context : partitions.values()) {
+            FileRangeResource resource = new FileRangeResource(context.getString("input.file"),
+                    context.getLong("start.offset"), context.getLong("end.offset"));
+            try (InputStream inputStream = resource.getInputStream()) {
+                byte[] bytes = inputStream.readAllBytes();
+                Assertions.assertEquals('\n', bytes[bytes.length - 1]);
+                content.writeBytes(bytes);
+            }
+        }
+        Assertions.assertArrayEquals(Files.readAllBytes(Paths.get(INPUT_FILE)), content.toByteArray());
+    }
+
+    @Test
+    void testCountLinesBeforeThePartition() throws Exception {
+        // Given
+        BillingFilePartitioner partitioner = new BillingFilePartitioner(INPUT_FILE);
+        byte[] file = Files.readAllBytes(Paths.get(INPUT_FILE));
+
+        // When
+        Map<String, ExecutionContext> partitions = partitioner.partition(4);
+
+        // Then
+        for (ExecutionContext context : partitions.values()) {
+            long startOffset = context.getLong("start.offset");
+            long lines = 0;
+            for (int i = 0; i < startOffset; i++) {
+                lines += file[i] == '\n' ? 1 : 0;
+            }
+            Assertions.assertEquals(lines, BillingFilePartitioner.countLines(Paths.get(INPUT_FILE), startOffset));
+            Assertions.assertFalse(context.containsKey("start.line"));
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package br.com.gabezy.billingjob.policies;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+
+import java.time.Duration;
+
+class AdaptiveCompletionPolicyTests {
+
+    @Test
+    void testGrowsWhenCommitsAreCheapAndShrinksAfterFailures() {
+        // Given
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+        ChunkContext chunkContext = new ChunkContext(new StepContext(stepExecution));
+        // any chunk of the test takes less than half of a one hour target
+        AdaptiveCompletionPolicy policy = new AdaptiveCompletionPolicy(100, 50, 1000, Duration.ofHours(1));
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            policy.beforeChunk(chunkContext);
+            policy.afterChunk(chunkContext);
+        }
+        int grown = policy.getSize();
+        policy.beforeChunk(chunkContext);
+        policy.onSkipInRead(new IllegalStateException());
+        policy.afterChunk(chunkContext);
+        int afterSkip = policy.getSize();
+        for (int i = 0; i < 10; i++) {
+            policy.afterChunkError(chunkContext);
+        }
+
+        // Then
+        Assertions.assertEquals(1000, grown);
+        Assertions.assertEquals(500, afterSkip);
+        Assertions.assertEquals(500, stepExecution.getExecutionContext().getInt(AdaptiveCompletionPolicy.CHUNK_SIZE_KEY));
+        Assertions.assertEquals(50, policy.getSize());
+    }
+
+    @Test
+    void testRestartsWithSavedSize() {
+        // Given
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+        stepExecution.getExecutionContext().putInt(AdaptiveCompletionPolicy.CHUNK_SIZE_KEY, 800);
+        AdaptiveCompletionPolicy policy = new AdaptiveCompletionPolicy(100, 50, 1000, Duration.ofSeconds(1));
+
+        // When
+        policy.beforeStep(stepExecution);
+
+        // Then
+        Assertions.assertEquals(800, policy.getSize());
+    }
+}
@@ -0,0 +1,40 @@
+package br.com.gabezy.billingjob.policies;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.StepSynchronizationManager;
+import org.springframework.batch.core.step.skip.SkipLimitExceededException;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+
+class RatioSkipPolicyTests {
+
+    private final FlatFileParseException parseException = new FlatFileParseException("Parsing error", "bad line", 1);
+
+    @AfterEach
+    void tearDown() {
+        StepSynchronizationManager.close();
+    }
+
+    @Test
+    void testSkipLimitGrowsWithTheLinesRead() {
+        // Given
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+        StepSynchronizationManager.register(stepExecution);
+        RatioSkipPolicy policy = new RatioSkipPolicy(10, 0.01);
+
+        // When
+        boolean firstLines = policy.shouldSkip(parseException, 9);
+        stepExecution.setReadCount(4_900);
+        stepExecution.setReadSkipCount(100);
+        boolean onePercent = policy.shouldSkip(parseException, 49);
+
+        // Then
+        Assertions.assertTrue(firstLines);
+        Assertions.assertTrue(onePercent);
+        Assertions.assertThrows(SkipLimitExceededException.class, () -> policy.shouldSkip(parseException, 50));
+        Assertions.assertFalse(policy.shouldSkip(new IllegalStateException(), 0));
+    }
+}
@@ -0,0 +1,44 @@
+package br.com.gabezy.billingjob.processors;
+
+import br.com.gabezy.billingjob.domain.BillingData;
+import br.com.gabezy.billingjob.domain.RateCard;
+import br.com.gabezy.billingjob.domain.ReportingData;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+class BillingDataChunkPricerTests {
+
+    @Test
+    void testChunkIsPricedLikeTheProcessor() throws Exception {
+        // Given
+        RateCard rateCard = new RateCard(0.01f, 0.5f, 0.1f);
+        float spendingThreshold = 150;
+        Random random = new Random(42);
+        List<BillingData> items = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            items.add(new BillingData(2023, 1, i, "404-555-1000", random.nextFloat() * 10000,
+                    random.nextInt(300), random.nextInt(500)));
+        }
+        BillingDataProcessor processor = new BillingDataProcessor(rateCard, spendingThreshold);
+        List<ReportingData> expected = new ArrayList<>();
+        for (BillingData item : items) {
+            ReportingData reportingData = processor.process(item);
+            if (Objects.nonNull(reportingData)) {
+                expected.add(reportingData);
+            }
+        }
+
+        // When
+        List<ReportingData> priced = new BillingDataChunkPricer(rateCard, spendingThreshold).price(items);
+
+        // Then
+        Assertions.assertFalse(expected.isEmpty());
+        Assertions.assertTrue(expected.size() < items.size());
+        Assertions.assertEquals(expected, priced);
+    }
+}
@@ -0,0 +1,162 @@
+package br.com.gabezy.billingjob.readers;
+
+import br.com.gabezy.billingjob.domain.BillingData;
+import br.com.gabezy.billingjob.domain.BillingDataChange;
+import br.com.gabezy.billingjob.domain.BillingDataChange.Type;
+import br.com.gabezy.billingjob.mappers.BillingDataLineMapper;
+import br.com.gabezy.billingjob.writers.BillingDataDeltaItemWriter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.file.FlatFileItemReader;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.batch.item.file.builder.FlatFileItemReaderBuilder;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+class BillingDataDeltaReaderTests {
+
+    private static final BillingData UNCHANGED = new BillingData(2023, 1, 100, "404-555-1000", 24.4f, 115, 323);
+    private static final BillingData CHANGED = new BillingData(2023, 1, 101, "404-555-1001", 69.87f, 289, 77);
+    private static final BillingData REMOVED = new BillingData(2023, 1, 102, "404-555-1002", 15.72f, 110, 827);
+    private static final BillingData ADDED = new BillingData(2023, 1, 103, "404-555-1003", 1.5f, 10, 20);
+
+    @TempDir
+    Path directory;
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUpEach() throws Exception {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("schema-billing.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        // the last ingestion of the month
+        new BillingDataDeltaItemWriter(jdbcTemplate).write(Chunk.of(
+                new BillingDataChange(Type.ADDED, UNCHANGED, BillingDataChange.fingerprint(UNCHANGED)),
+                new BillingDataChange(Type.ADDED, CHANGED, BillingDataChange.fingerprint(CHANGED)),
+                new BillingDataChange(Type.ADDED, REMOVED, BillingDataChange.fingerprint(REMOVED))));
+    }
+
+    @AfterEach
+    void tearDownEach() {
+        database.shutdown();
+    }
+
+    @Test
+    void testReturnsOnlyTheChangesOfTheFile() throws Exception {
+        // Given
+        BillingData changed = new BillingData(2023, 1, 101, "404-555-1001", 70.5f, 289, 77);
+        BillingDataDeltaReader reader = reader(
+                "2023,01,100,404-555-1000,24.40,115,323",
+                "2023,01,101,404-555-1001,70.50,289,77",
+                "2023,01,103,404-555-1003,1.50,10,20");
+
+        // When
+        List<BillingDataChange> changes = readAll(reader);
+
+        // Then
+        Assertions.assertEquals(List.of(
+                new BillingDataChange(Type.CHANGED, changed, BillingDataChange.fingerprint(changed)),
+                new BillingDataChange(Type.ADDED, ADDED, BillingDataChange.fingerprint(ADDED)),
+                new BillingDataChange(Type.REMOVED, new BillingData(2023, 1, 102, "404-555-1002", 0, 0, 0), 0)),
+                changes);
+    }
+
+    @Test
+    void testKeepsTheMissingRowsWhenLinesAreSkipped() throws Exception {
+        // Given
+        BillingDataDeltaReader reader = reader(
+                "2023,01,100,404-555-1000,24.40,115,323",
+                "2023,01,not-a-line",
+                "2023,01,101,404-555-1001,69.87,289,77",
+                "2023,01,103,404-555-1003,1.50,10,20");
+        reader.open(new ExecutionContext());
+
+        // When: the bad line is skipped by the step, which goes on reading
+        Assertions.assertThrows(FlatFileParseException.class, reader::read);
+        List<BillingDataChange> changes = new ArrayList<>();
+        BillingDataChange change;
+        while ((change = reader.read()) != null) {
+            changes.add(change);
+        }
+        reader.close();
+
+        // Then: the bad line may be the row 102, it isn't removed
+        Assertions.assertEquals(List.of(Type.ADDED), changes.stream().map(BillingDataChange::type).toList());
+    }
+
+    @Test
+    void testRejectsAKeyFoundTwice() throws Exception {
+        // Given
+        BillingDataDeltaReader reader = reader(
+                "2023,01,103,404-555-1003,1.50,10,20",
+                "2023,01,103,404-555-1003,2.50,10,20");
+        reader.open(new ExecutionContext());
+
+        // When
+        BillingDataChange first = reader.read();
+
+        // Then
+        Assertions.assertEquals(Type.ADDED, first.type());
+        Assertions.assertThrows(IllegalStateException.class, reader::read);
+        reader.close();
+    }
+
+    @Test
+    void testRestartReturnsOnlyTheChangesNotWritten() throws Exception {
+        // Given: the first change was committed before the failure
+        BillingDataDeltaReader reader = reader(
+                "2023,01,100,404-555-1000,24.40,115,323",
+                "2023,01,101,404-555-1001,70.50,289,77",
+                "2023,01,103,404-555-1003,1.50,10,20");
+        reader.open(new ExecutionContext());
+        new BillingDataDeltaItemWriter(jdbcTemplate).write(Chunk.of(reader.read()));
+        reader.close();
+
+        // When
+        List<BillingDataChange> changes = readAll(reader);
+
+        // Then
+        Assertions.assertEquals(List.of(Type.ADDED, Type.REMOVED),
+                changes.stream().map(BillingDataChange::type).toList());
+    }
+
+    private BillingDataDeltaReader reader(String... lines) throws Exception {
+        Path inputFile = Files.write(directory.resolve("billing.csv"), List.of(lines));
+        FlatFileItemReader<BillingData> delegate = new FlatFileItemReaderBuilder<BillingData>()
+                .name("billingDataFileReader")
+                .resource(new FileSystemResource(inputFile))
+                .lineMapper(new BillingDataLineMapper())
+                .saveState(false)
+                .build();
+        return new BillingDataDeltaReader(delegate, jdbcTemplate, 2023, 1);
+    }
+
+    private static List<BillingDataChange> readAll(BillingDataDeltaReader reader) throws Exception {
+        reader.open(new ExecutionContext());
+        List<BillingDataChange> changes = new ArrayList<>();
+        BillingDataChange change;
+        while ((change = reader.read()) != null) {
+            changes.add(change);
+        }
+        reader.close();
+        return changes;
+    }
+}
@@ -0,0 +1,65 @@
+package br.com.gabezy.billingjob.readers;
+
+import br.com.gabezy.billingjob.domain.BillingData;
+import br.com.gabezy.billingjob.mappers.BillingDataLineMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+class MappedBillingDataFileReaderTests {
+
+    private static final String INPUT_FILE = "input/billing-2023-01.csv";
+
+    @Test
+    void testReadsAllLinesAcrossWindows() throws Exception {
+        // Given
+        List<BillingData> expected = new ArrayList<>();
+        List<String> lines = Files.readAllLines(Paths.get(INPUT_FILE));
+        BillingDataLineMapper lineMapper = new BillingDataLineMapper();
+        for (int i = 0; i < lines.size(); i++) {
+            expected.add(lineMapper.mapLine(lines.get(i), i + 1));
+        }
+        // a window smaller than a few lines forces the reader to map the file many times
+        MappedBillingDataFileReader reader = new MappedBillingDataFileReader("reader", INPUT_FILE, 0, -1, 50);
+
+        // When
+        reader.open(new ExecutionContext());
+        List<BillingData> items = new ArrayList<>();
+        BillingData item;
+        while ((item = reader.read()) != null) {
+            items.add(item);
+        }
+        reader.close();
+
+        // Then
+        Assertions.assertEquals(expected, items);
+    }
+
+    @Test
+    void testRestartsAtSavedOffset() throws Exception {
+        // Given
+        ExecutionContext executionContext = new ExecutionContext();
+        MappedBillingDataFileReader reader = new MappedBillingDataFileReader("reader", INPUT_FILE);
+        reader.open(executionContext);
+        for (int i = 0; i < 10; i++) {
+            reader.read();
+        }
+        reader.update(executionContext);
+        BillingData eleventh = reader.read();
+        reader.close();
+
+        // When
+        MappedBillingDataFileReader restarted = new MappedBillingDataFileReader("reader", INPUT_FILE);
+        restarted.open(executionContext);
+
+        // Then
+        Assertions.assertEquals(eleventh, restarted.read());
+        restarted.close();
+    }
+
+}
@@ -0,0 +1,143 @@
+package br.com.gabezy.billingjob.runners;
+
+import br.com.gabezy.billingjob.BillingJobApplication;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.NestedExceptionUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+// the runner works at the startup, so each backfill has its own application context on one database
+class BillingBackfillRunnerTests {
+
+    @TempDir
+    Path directory;
+
+    private final String databaseUrl = "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+    // the billing schema is created by the first context only
+    private boolean initialized;
+
+    @Test
+    void testMonthsRunUnderTheConnectionBudgetAndCompletedMonthsAreSkipped() throws Exception {
+        // Given: 6 connections to follow the runs, 3 per run (transaction and cursor of the report, job thread)
+        try (ConfigurableApplicationContext context = run("--spring.cellular.backfill.enabled=true",
+                "--spring.cellular.backfill.from=2023-01", "--spring.cellular.backfill.to=2023-03",
+                "--spring.datasource.hikari.maximum-pool-size=7")) {
+            BillingBackfillRunner runner = context.getBean(BillingBackfillRunner.class);
+            Assertions.assertEquals(3, runner.getConnectionsPerRun());
+            Assertions.assertEquals(2, runner.getConcurrency());
+
+            List<JobExecution> jobExecutions = jobExecutions(context);
+            Assertions.assertEquals(3, jobExecutions.size());
+            Assertions.assertTrue(jobExecutions.stream().allMatch(execution ->
+                    execution.getStatus() == BatchStatus.COMPLETED));
+            Assertions.assertTrue(maxConcurrentRuns(jobExecutions) <= 2);
+        }
+
+        // When
+        try (ConfigurableApplicationContext context = run("--spring.cellular.backfill.enabled=true",
+                "--spring.cellular.backfill.from=2023-01", "--spring.cellular.backfill.to=2023-04")) {
+
+            // Then: one execution per month, 2023-01 to 2023-03 weren't run again
+            List<JobExecution> jobExecutions = jobExecutions(context);
+            Assertions.assertEquals(4, jobExecutions.size());
+            Assertions.assertTrue(jobExecutions.stream().allMatch(execution ->
+                    execution.getStatus() == BatchStatus.COMPLETED));
+        }
+        Assertions.assertEquals(Files.readAllLines(Paths.get("staging", "billing-report-2023-04.csv")),
+                Files.readAllLines(directory.resolve("billing-report-2023-04.csv")));
+    }
+
+    @Test
+    void testConnectionsPerRunFollowThePartitionedReport() {
+        // When: a transaction and a cursor per partition of the report
+        try (ConfigurableApplicationContext context = run("--spring.cellular.backfill.enabled=true",
+                "--spring.cellular.backfill.from=2023-01", "--spring.cellular.backfill.to=2023-01",
+                "--spring.cellular.report.partitioned=true", "--spring.cellular.report.grid-size=3",
+                "--spring.datasource.hikari.maximum-pool-size=20")) {
+
+            // Then
+            BillingBackfillRunner runner = context.getBean(BillingBackfillRunner.class);
+            Assertions.assertEquals(7, runner.getConnectionsPerRun());
+            Assertions.assertEquals(2, runner.getConcurrency());
+        }
+    }
+
+    @Test
+    void testRunnerFailsWhenAMonthFails() throws Exception {
+        // Given: 2023-02 is still marked as running and the file of 2023-03 is missing
+        Path input = Files.createDirectories(directory.resolve("input"));
+        Files.copy(Paths.get("input", "billing-2023-01.csv"), input.resolve("billing-2023-01.csv"));
+        Files.copy(Paths.get("input", "billing-2023-02.csv"), input.resolve("billing-2023-02.csv"));
+        String inputFile = "--spring.cellular.backfill.input-file=" + input.resolve("billing-{year}-{month}.csv");
+        try (ConfigurableApplicationContext context = run()) {
+            context.getBean(JobRepository.class).createJobExecution("BillingJob", new JobParametersBuilder()
+                    .addString("input.file", input.resolve("billing-2023-02.csv").toString())
+                    .addString("output.file", directory.resolve("billing-report-2023-02.csv").toString())
+                    .addString("skip.file", directory.resolve("billing-data-skip-2023-02.psv").toString())
+                    .addJobParameter("data.year", 2023, Integer.class)
+                    .addJobParameter("data.month", 2, Integer.class)
+                    .toJobParameters());
+        }
+
+        // When
+        Exception exception = Assertions.assertThrows(Exception.class, () ->
+                run("--spring.cellular.backfill.enabled=true", inputFile,
+                        "--spring.cellular.backfill.from=2023-01", "--spring.cellular.backfill.to=2023-03").close());
+
+        // Then: the other months still ran
+        Throwable cause = NestedExceptionUtils.getMostSpecificCause(exception);
+        Assertions.assertEquals("Backfill failed for the months [2023-02, 2023-03]", cause.getMessage());
+        Assertions.assertEquals(Files.readAllLines(Paths.get("staging", "billing-report-2023-01.csv")),
+                Files.readAllLines(directory.resolve("billing-report-2023-01.csv")));
+    }
+
+    private ConfigurableApplicationContext run(String... args) {
+        List<String> arguments = new ArrayList<>(List.of(
+                "--spring.datasource.url=" + databaseUrl,
+                "--spring.sql.init.mode=" + (initialized ? "never" : "always"),
+                "--spring.cellular.executor.max-jobs=4",
+                "--spring.cellular.backfill.output-file=" + directory.resolve("billing-report-{year}-{month}.csv"),
+                "--spring.cellular.backfill.skip-file=" + directory.resolve("billing-data-skip-{year}-{month}.psv"),
+                "--spring.cellular.backfill.poll-interval=PT0.1S"));
+        arguments.addAll(List.of(args));
+        initialized = true;
+        return new SpringApplicationBuilder(BillingJobApplication.class)
+                .profiles("h2")
+                .run(arguments.toArray(String[]::new));
+    }
+
+    private static List<JobExecution> jobExecutions(ConfigurableApplicationContext context) {
+        JobExplorer jobExplorer = context.getBean(JobExplorer.class);
+        List<JobInstance> jobInstances = jobExplorer.getJobInstances("BillingJob", 0, 100);
+        return jobInstances.stream()
+                .flatMap(jobInstance -> jobExplorer.getJobExecutions(jobInstance).stream())
+                .toList();
+    }
+
+    // the most runs started and not yet finished at the start of any of them
+    private static long maxConcurrentRuns(List<JobExecution> jobExecutions) {
+        return jobExecutions.stream()
+                .mapToLong(execution -> jobExecutions.stream()
+                        .filter(other -> !other.getStartTime().isAfter(execution.getStartTime())
+                                && other.getEndTime().isAfter(execution.getStartTime()))
+                        .count())
+                .max()
+                .orElse(0);
+    }
+}
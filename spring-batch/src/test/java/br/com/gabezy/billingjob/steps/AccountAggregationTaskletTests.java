@@ -0,0 +1,96 @@
+package br.com.gabezy.billingjob.steps;
+
+import br.com.gabezy.billingjob.domain.RateCard;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+class AccountAggregationTaskletTests {
+
+    private static final RateCard RATE_CARD = new RateCard(0.01f, 0.1f, 0.1f);
+
+    @TempDir
+    Path directory;
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private String outputFile;
+
+    @BeforeEach
+    void setUpEach() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("schema-billing.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        outputFile = directory.resolve("billing-report.csv").toString();
+        insert(101, 22.39f, 100, 10);
+        insert(100, 69.87f, 289, 77);
+        insert(101, 10.5f, 20, 5);
+        insert(102, 15.72f, 110, 827);
+    }
+
+    @AfterEach
+    void tearDownEach() {
+        database.shutdown();
+    }
+
+    @Test
+    void testTotalsAreWrittenWithThePrecisionOfTheReport() throws Exception {
+        // When
+        execute(1000);
+
+        // Then
+        Assertions.assertEquals(List.of(
+                "100,1,69.87,289,77," + RATE_CARD.billingTotal(69.87f, 289, 77),
+                "101,2,32.89,120,15," + (RATE_CARD.billingTotal(22.39f, 100, 10) +
+                        RATE_CARD.billingTotal(10.5f, 20, 5)),
+                "102,1,15.72,110,827," + RATE_CARD.billingTotal(15.72f, 110, 827)),
+                Files.readAllLines(Path.of(outputFile + AccountAggregationTasklet.ACCOUNTS_FILE_SUFFIX)));
+        Assertions.assertEquals(List.of(102, 100, 101),
+                Files.readAllLines(Path.of(outputFile + AccountAggregationTasklet.TOP_FILE_SUFFIX)).stream()
+                        .map(line -> Integer.parseInt(line.substring(0, line.indexOf(','))))
+                        .toList());
+    }
+
+    @Test
+    void testSpilledRunsAreMergedIntoTheSameTotals() throws Exception {
+        // Given
+        execute(1000);
+        Path accountsFile = Path.of(outputFile + AccountAggregationTasklet.ACCOUNTS_FILE_SUFFIX);
+        List<String> inMemory = Files.readAllLines(accountsFile);
+
+        // When: a run is spilled after every account
+        execute(1);
+
+        // Then
+        Assertions.assertEquals(inMemory, Files.readAllLines(accountsFile));
+    }
+
+    private void insert(int accountId, float dataUsage, int callDuration, int smsCount) {
+        jdbcTemplate.update("INSERT INTO BILLING_DATA VALUES (2023, 1, ?, ?, ?, ?, ?)", accountId,
+                "404-555-" + accountId, dataUsage, callDuration, smsCount);
+    }
+
+    private void execute(int maxAccounts) throws Exception {
+        AccountAggregationTasklet tasklet = new AccountAggregationTasklet(jdbcTemplate, () -> RATE_CARD, 2023, 1,
+                outputFile, maxAccounts, 10);
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+        tasklet.execute(stepExecution.createStepContribution(), new ChunkContext(new StepContext(stepExecution)));
+    }
+}
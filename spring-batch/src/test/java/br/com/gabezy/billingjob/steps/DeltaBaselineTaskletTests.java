@@ -0,0 +1,77 @@
+package br.com.gabezy.billingjob.steps;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.jdbc.JdbcTestUtils;
+
+import java.util.List;
+
+class DeltaBaselineTaskletTests {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private DeltaBaselineTasklet tasklet;
+
+    @BeforeEach
+    void setUpEach() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("schema-billing.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        tasklet = new DeltaBaselineTasklet(jdbcTemplate, new CleanupBillingDatabaseStep(jdbcTemplate), 2023, 1);
+        // a month ingested by the full ingestion, and another month
+        jdbcTemplate.update("INSERT INTO BILLING_DATA VALUES (2023, 1, 100, '404-555-1000', 24.4, 115, 323), " +
+                "(2023, 1, 101, '404-555-1001', 69.87, 289, 77), (2023, 2, 100, '404-555-1000', 1.5, 10, 20)");
+    }
+
+    @AfterEach
+    void tearDownEach() {
+        database.shutdown();
+    }
+
+    @Test
+    void testFirstIncrementalRunCleansTheMonth() throws Exception {
+        // When
+        execute();
+
+        // Then: the report lines of the removed rows are patched
+        Assertions.assertEquals(List.of(2), jdbcTemplate.queryForList("SELECT DATA_MONTH FROM BILLING_DATA",
+                Integer.class));
+        Assertions.assertEquals(List.of(100, 101), jdbcTemplate.queryForList("SELECT ACCOUNT_ID FROM " +
+                "BILLING_DATA_DELTA WHERE DATA_YEAR = 2023 AND DATA_MONTH = 1 ORDER BY ACCOUNT_ID", Integer.class));
+    }
+
+    @Test
+    void testMonthWithFingerprintsIsKept() throws Exception {
+        // Given
+        jdbcTemplate.update("INSERT INTO BILLING_DATA_FINGERPRINT VALUES (2023, 1, 100, '404-555-1000', 42)");
+
+        // When
+        execute();
+
+        // Then
+        Assertions.assertEquals(3, JdbcTestUtils.countRowsInTable(jdbcTemplate, "BILLING_DATA"));
+        Assertions.assertEquals(0, JdbcTestUtils.countRowsInTable(jdbcTemplate, "BILLING_DATA_DELTA"));
+    }
+
+    private void execute() throws Exception {
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution(new JobParametersBuilder()
+                .addJobParameter("data.year", 2023, Integer.class)
+                .addJobParameter("data.month", 1, Integer.class)
+                .toJobParameters());
+        tasklet.execute(stepExecution.createStepContribution(), new ChunkContext(new StepContext(stepExecution)));
+    }
+}
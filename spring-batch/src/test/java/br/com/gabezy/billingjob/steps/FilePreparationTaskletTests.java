@@ -0,0 +1,95 @@
+package br.com.gabezy.billingjob.steps;
+
+import br.com.gabezy.billingjob.steps.FilePreparationTasklet.StagingMode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+class FilePreparationTaskletTests {
+
+    @TempDir
+    Path directory;
+
+    private Path source;
+    private Path staged;
+    private Path checksumFile;
+
+    @BeforeEach
+    void setUpEach() throws Exception {
+        String name = "file-preparation-" + UUID.randomUUID() + ".csv";
+        source = Files.copy(Paths.get("input/billing-2023-01.csv"), directory.resolve(name));
+        staged = Paths.get("staging", name);
+        checksumFile = Paths.get("staging", "." + name + ".crc32c");
+    }
+
+    @AfterEach
+    void tearDownEach() throws Exception {
+        Files.deleteIfExists(staged);
+        Files.deleteIfExists(checksumFile);
+    }
+
+    @Test
+    void testTransferRecordsTheChecksumOfTheCopy() throws Exception {
+        // When
+        execute(StagingMode.TRANSFER);
+
+        // Then
+        byte[] content = Files.readAllBytes(source);
+        Assertions.assertArrayEquals(content, Files.readAllBytes(staged));
+        CRC32C crc = new CRC32C();
+        crc.update(content);
+        Assertions.assertEquals(content.length + " " + Files.getLastModifiedTime(source).toMillis() + " " +
+                Long.toHexString(crc.getValue()), Files.readString(checksumFile));
+    }
+
+    @Test
+    void testUnchangedStagedFileIsNotCopiedAgain() throws Exception {
+        // Given
+        execute(StagingMode.TRANSFER);
+        FileTime stagedAt = FileTime.fromMillis(Files.getLastModifiedTime(staged).toMillis() - 60_000);
+        Files.setLastModifiedTime(staged, stagedAt);
+
+        // When
+        execute(StagingMode.TRANSFER);
+
+        // Then
+        Assertions.assertEquals(stagedAt, Files.getLastModifiedTime(staged));
+    }
+
+    @Test
+    void testCorruptedStagedFileOfTheSameSizeIsStagedAgain() throws Exception {
+        // Given
+        execute(StagingMode.TRANSFER);
+        byte[] corrupted = Files.readAllBytes(staged);
+        corrupted[10] ^= 1;
+        Files.write(staged, corrupted);
+
+        // When
+        execute(StagingMode.TRANSFER);
+
+        // Then
+        Assertions.assertArrayEquals(Files.readAllBytes(source), Files.readAllBytes(staged));
+    }
+
+    private void execute(StagingMode stagingMode) throws Exception {
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution(new JobParametersBuilder()
+                .addString("input.file", source.toString())
+                .toJobParameters());
+        new FilePreparationTasklet(stagingMode).execute(stepExecution.createStepContribution(),
+                new ChunkContext(new StepContext(stepExecution)));
+    }
+}
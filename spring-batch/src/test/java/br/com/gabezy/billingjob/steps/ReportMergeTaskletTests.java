@@ -0,0 +1,78 @@
+package br.com.gabezy.billingjob.steps;
+
+import br.com.gabezy.billingjob.partitioners.AccountRangePartitioner;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+class ReportMergeTaskletTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testOnlyTheRecordedPartitionFilesAreMerged() throws Exception {
+        // Given
+        String outputFile = directory.resolve("billing-report.csv").toString();
+        Path first = Files.writeString(Path.of(AccountRangePartitioner.partitionFile(outputFile, 0)), "1,a\n");
+        Path second = Files.writeString(Path.of(AccountRangePartitioner.partitionFile(outputFile, 1)), "2,b\n");
+        Path third = Files.writeString(Path.of(AccountRangePartitioner.partitionFile(outputFile, 2)), "3,c\n");
+        Path stale = Files.writeString(Path.of(AccountRangePartitioner.partitionFile(outputFile, 5)), "9,stale\n");
+
+        // the first partition completed in a failed execution, the others on the restart
+        JobExecution failed = MetaDataInstanceFactory.createJobExecution("BillingJob", 1L, 1L);
+        worker(failed, "reportGenerationWorker:partition0", 1L, first);
+        worker(failed, "reportGenerationWorker:partition1", 2L, second);
+        JobExecution restart = MetaDataInstanceFactory.createJobExecution("BillingJob", 1L, 2L);
+        worker(restart, "reportGenerationWorker:partition1", 3L, second);
+        worker(restart, "reportGenerationWorker:partition2", 4L, third);
+        StepExecution merge = MetaDataInstanceFactory.createStepExecution(restart, "reportMerge", 5L);
+
+        ReportMergeTasklet tasklet = new ReportMergeTasklet(outputFile, jobInstance -> List.of(failed, restart));
+
+        // When
+        tasklet.execute(merge.createStepContribution(), new ChunkContext(new StepContext(merge)));
+
+        // Then
+        Assertions.assertEquals("1,a\n2,b\n3,c\n", Files.readString(Path.of(outputFile)));
+        Assertions.assertFalse(Files.exists(first));
+        Assertions.assertFalse(Files.exists(second));
+        Assertions.assertFalse(Files.exists(third));
+        Assertions.assertTrue(Files.exists(stale));
+    }
+
+    @Test
+    void testMissingPartitionFileFailsTheMerge() throws Exception {
+        // Given
+        String outputFile = directory.resolve("billing-report.csv").toString();
+        Path first = Files.writeString(Path.of(AccountRangePartitioner.partitionFile(outputFile, 0)), "1,a\n");
+        Path missing = Path.of(AccountRangePartitioner.partitionFile(outputFile, 1));
+        JobExecution jobExecution = MetaDataInstanceFactory.createJobExecution("BillingJob", 1L, 1L);
+        worker(jobExecution, "reportGenerationWorker:partition0", 1L, first);
+        worker(jobExecution, "reportGenerationWorker:partition1", 2L, missing);
+        StepExecution merge = MetaDataInstanceFactory.createStepExecution(jobExecution, "reportMerge", 3L);
+
+        ReportMergeTasklet tasklet = new ReportMergeTasklet(outputFile, jobInstance -> List.of(jobExecution));
+
+        // When / Then
+        Assertions.assertThrows(IllegalStateException.class,
+                () -> tasklet.execute(merge.createStepContribution(), new ChunkContext(new StepContext(merge))));
+        Assertions.assertTrue(Files.exists(first));
+        Assertions.assertFalse(Files.exists(Path.of(outputFile)));
+    }
+
+    private static void worker(JobExecution jobExecution, String stepName, long id, Path partitionFile) {
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution(jobExecution, stepName, id);
+        stepExecution.getExecutionContext().putString(AccountRangePartitioner.OUTPUT_FILE_KEY,
+                partitionFile.toString());
+    }
+}
@@ -0,0 +1,92 @@
+package br.com.gabezy.billingjob.writers;
+
+import br.com.gabezy.billingjob.domain.BillingData;
+import br.com.gabezy.billingjob.domain.BillingDataChange;
+import br.com.gabezy.billingjob.domain.BillingDataChange.Type;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.Chunk;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.List;
+
+class BillingDataDeltaItemWriterTests {
+
+    private static final BillingData FIRST = new BillingData(2023, 1, 100, "404-555-1000", 24.4f, 115, 323);
+    private static final BillingData SECOND = new BillingData(2023, 1, 101, "404-555-1001", 69.87f, 289, 77);
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private BillingDataDeltaItemWriter writer;
+
+    @BeforeEach
+    void setUpEach() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("schema-billing.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        writer = new BillingDataDeltaItemWriter(jdbcTemplate);
+    }
+
+    @AfterEach
+    void tearDownEach() {
+        database.shutdown();
+    }
+
+    @Test
+    void testAddedRowsAreInserted() throws Exception {
+        // When
+        writer.write(Chunk.of(added(FIRST), added(SECOND)));
+
+        // Then
+        Assertions.assertEquals(List.of(FIRST, SECOND), billingData());
+        Assertions.assertEquals(List.of(BillingDataChange.fingerprint(FIRST), BillingDataChange.fingerprint(SECOND)),
+                fingerprints());
+        Assertions.assertEquals(List.of(100, 101), delta());
+    }
+
+    @Test
+    void testChangedAndRemovedRowsAreApplied() throws Exception {
+        // Given
+        writer.write(Chunk.of(added(FIRST), added(SECOND)));
+        jdbcTemplate.update("DELETE FROM BILLING_DATA_DELTA");
+        BillingData changed = new BillingData(2023, 1, 100, "404-555-1000", 30.5f, 120, 323);
+
+        // When
+        writer.write(Chunk.of(new BillingDataChange(Type.CHANGED, changed, BillingDataChange.fingerprint(changed)),
+                new BillingDataChange(Type.REMOVED, new BillingData(2023, 1, 101, "404-555-1001", 0, 0, 0), 0)));
+
+        // Then
+        Assertions.assertEquals(List.of(changed), billingData());
+        Assertions.assertEquals(List.of(BillingDataChange.fingerprint(changed)), fingerprints());
+        Assertions.assertEquals(List.of(100, 101), delta());
+    }
+
+    private static BillingDataChange added(BillingData billingData) {
+        return new BillingDataChange(Type.ADDED, billingData, BillingDataChange.fingerprint(billingData));
+    }
+
+    private List<BillingData> billingData() {
+        return jdbcTemplate.query("SELECT * FROM BILLING_DATA ORDER BY ACCOUNT_ID", (rs, rowNum) ->
+                new BillingData(rs.getInt("DATA_YEAR"), rs.getInt("DATA_MONTH"), rs.getInt("ACCOUNT_ID"),
+                        rs.getString("PHONE_NUMBER"), rs.getFloat("DATA_USAGE"), rs.getInt("CALL_DURATION"),
+                        rs.getInt("SMS_COUNT")));
+    }
+
+    private List<Long> fingerprints() {
+        return jdbcTemplate.queryForList("SELECT FINGERPRINT FROM BILLING_DATA_FINGERPRINT ORDER BY ACCOUNT_ID",
+                Long.class);
+    }
+
+    private List<Integer> delta() {
+        return jdbcTemplate.queryForList("SELECT ACCOUNT_ID FROM BILLING_DATA_DELTA ORDER BY ACCOUNT_ID",
+                Integer.class);
+    }
+}
@@ -0,0 +1,106 @@
+package br.com.gabezy.billingjob.writers;
+
+import br.com.gabezy.billingjob.columnar.ColumnarReportFormat.Column;
+import br.com.gabezy.billingjob.domain.BillingData;
+import br.com.gabezy.billingjob.domain.ReportingData;
+import br.com.gabezy.billingjob.readers.ColumnarReportItemReader;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+class ColumnarReportItemWriterTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testReadsConcatenatedReportsAndSkipsRowGroupsByStats() throws Exception {
+        // Given
+        List<ReportingData> cheap = List.of(
+                reportingData(2023, 1, 120, "555-0001", 1.5f, 10, 3, 160.25),
+                reportingData(2023, 1, 101, "555-0001", 0.0f, 0, 0, 150.0));
+        List<ReportingData> expensive = List.of(
+                reportingData(2023, 1, 300, "555-0003", 7.75f, 400, 9, 410.5),
+                reportingData(2023, 1, 299, "555-0004", -2.0f, 1, 1, 999.99));
+        Path first = write("first", cheap);
+        Path second = write("second", expensive);
+        Path merged = tempDir.resolve("merged");
+        Files.write(merged, Files.readAllBytes(first));
+        Files.write(merged, Files.readAllBytes(second), StandardOpenOption.APPEND);
+
+        // When
+        List<ReportingData> all = readAll(new ColumnarReportItemReader("reader", merged.toString()));
+        List<ReportingData> aboveFiveHundred = readAll(new ColumnarReportItemReader("reader", merged.toString(),
+                stats -> (double) stats.max().get(Column.BILLING_TOTAL) > 500));
+
+        // Then
+        List<ReportingData> expected = new ArrayList<>(cheap);
+        expected.addAll(expensive);
+        Assertions.assertEquals(expected, all);
+        Assertions.assertEquals(expensive, aboveFiveHundred);
+    }
+
+    @Test
+    void testReaderRestartsInTheMiddleOfRowGroup() throws Exception {
+        // Given
+        List<ReportingData> rows = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            rows.add(reportingData(2023, 2, 100 + i, "555-000" + (i % 2), i, i * 2, i * 3, 150 + i));
+        }
+        Path report = write("report", rows);
+        ExecutionContext executionContext = new ExecutionContext();
+        ColumnarReportItemReader reader = new ColumnarReportItemReader("reader", report.toString());
+        reader.open(executionContext);
+        for (int i = 0; i < 4; i++) {
+            reader.read();
+        }
+        reader.update(executionContext);
+        reader.close();
+
+        // When
+        List<ReportingData> remaining = readAll(new ColumnarReportItemReader("reader", report.toString()),
+                executionContext);
+
+        // Then
+        Assertions.assertEquals(rows.subList(4, 10), remaining);
+    }
+
+    private Path write(String name, List<ReportingData> rows) throws Exception {
+        Path file = tempDir.resolve(name);
+        ColumnarReportItemWriter writer = new ColumnarReportItemWriter("writer", file.toString());
+        writer.open(new ExecutionContext());
+        writer.write(new Chunk<>(rows));
+        writer.close();
+        return file;
+    }
+
+    private static List<ReportingData> readAll(ColumnarReportItemReader reader) throws Exception {
+        return readAll(reader, new ExecutionContext());
+    }
+
+    private static List<ReportingData> readAll(ColumnarReportItemReader reader, ExecutionContext executionContext)
+            throws Exception {
+        List<ReportingData> rows = new ArrayList<>();
+        reader.open(executionContext);
+        ReportingData row;
+        while ((row = reader.read()) != null) {
+            rows.add(row);
+        }
+        reader.close();
+        return rows;
+    }
+
+    private static ReportingData reportingData(int year, int month, int accountId, String phoneNumber, float dataUsage,
+                                               int callDuration, int smsCount, double billingTotal) {
+        return new ReportingData(new BillingData(year, month, accountId, phoneNumber, dataUsage, callDuration,
+                smsCount), billingTotal);
+    }
+}
@@ -0,0 +1,117 @@
+package br.com.gabezy.billingjob.writers;
+
+import br.com.gabezy.billingjob.compression.Compression;
+import br.com.gabezy.billingjob.readers.CompressedFileResource;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class CompressedFileItemWriterTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRestartTruncatesUncommittedChunk() throws Exception {
+        for (Compression compression : List.of(Compression.GZIP, Compression.ZSTD)) {
+            // Given
+            String outputFile = tempDir.resolve("report-" + compression).toString();
+            ExecutionContext executionContext = new ExecutionContext();
+            CompressedFileItemWriter<String> writer = new CompressedFileItemWriter<>("writer", outputFile, compression,
+                    item -> item);
+            writer.open(executionContext);
+            writer.write(Chunk.of("1", "2"));
+            writer.update(executionContext);
+            writer.write(Chunk.of("lost"));
+            writer.close();
+
+            // When
+            CompressedFileItemWriter<String> restarted = new CompressedFileItemWriter<>("writer", outputFile,
+                    compression, item -> item);
+            restarted.open(executionContext);
+            restarted.write(Chunk.of("3"));
+            restarted.close();
+
+            // Then
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new CompressedFileResource(outputFile, compression).getInputStream(), StandardCharsets.UTF_8))) {
+                Assertions.assertEquals(List.of("1", "2", "3"), reader.lines().toList());
+            }
+        }
+    }
+
+    @Test
+    void testRollbackOfAChunkKeepsTheChunksCommittedMeanwhile() throws Exception {
+        // Given
+        String outputFile = tempDir.resolve("report-multi-threaded").toString();
+        ExecutionContext executionContext = new ExecutionContext();
+        CompressedFileItemWriter<String> writer = new CompressedFileItemWriter<>("writer", outputFile,
+                Compression.GZIP, item -> item);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new ResourcelessTransactionManager());
+        CountDownLatch rolledBackWritten = new CountDownLatch(1);
+        CountDownLatch committed = new CountDownLatch(1);
+        writer.open(executionContext);
+
+        // When
+        CompletableFuture<Void> rolledBackChunk = CompletableFuture.runAsync(() ->
+                transactionTemplate.executeWithoutResult(status -> {
+                    write(writer, Chunk.of("rolled back 1", "rolled back 2"));
+                    rolledBackWritten.countDown();
+                    await(committed);
+                    status.setRollbackOnly();
+                }));
+        CompletableFuture<Void> committedChunk = CompletableFuture.runAsync(() ->
+                transactionTemplate.executeWithoutResult(status -> {
+                    await(rolledBackWritten);
+                    write(writer, Chunk.of("1", "2"));
+                }))
+                .thenRun(committed::countDown);
+        CompletableFuture.allOf(rolledBackChunk, committedChunk).get(10, TimeUnit.SECONDS);
+        transactionTemplate.executeWithoutResult(status -> {
+            write(writer, Chunk.of("3"));
+            writer.update(executionContext);
+        });
+        writer.write(Chunk.of("lost"));
+        writer.close();
+        CompressedFileItemWriter<String> restarted = new CompressedFileItemWriter<>("writer", outputFile,
+                Compression.GZIP, item -> item);
+        restarted.open(executionContext);
+        restarted.write(Chunk.of("4"));
+        restarted.close();
+
+        // Then
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new CompressedFileResource(outputFile, Compression.GZIP).getInputStream(), StandardCharsets.UTF_8))) {
+            Assertions.assertEquals(List.of("1", "2", "3", "4"), reader.lines().toList());
+        }
+    }
+
+    private static void write(CompressedFileItemWriter<String> writer, Chunk<String> chunk) {
+        try {
+            writer.write(chunk);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            Assertions.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package br.com.gabezy.billingjob.writers;
+
+import br.com.gabezy.billingjob.domain.BillingData;
+import br.com.gabezy.billingjob.domain.ReportingData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.jdbc.JdbcTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+class ReportPatchItemWriterTests {
+
+    private static final List<String> REPORT = List.of(
+            "2023,1,100,404-555-1000,24.4,115,323,152.0",
+            "2023,1,101,404-555-1001,69.87,289,77,506.0",
+            "2023,1,102,404-555-1002,15.72,110,827,283.0");
+
+    @TempDir
+    Path directory;
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private Path report;
+    private ReportPatchItemWriter writer;
+
+    @BeforeEach
+    void setUpEach() throws Exception {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("schema-billing.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        report = Files.write(directory.resolve("billing-report.csv"), REPORT);
+        writer = new ReportPatchItemWriter(jdbcTemplate, 2023, 1, report.toString());
+        // 101 changed, 102 removed and 103 added since the report was written
+        jdbcTemplate.update("INSERT INTO BILLING_DATA_DELTA VALUES (2023, 1, 101, '404-555-1001'), " +
+                "(2023, 1, 102, '404-555-1002'), (2023, 1, 103, '404-555-1003')");
+    }
+
+    @AfterEach
+    void tearDownEach() {
+        database.shutdown();
+    }
+
+    @Test
+    void testChangedLinesAreReplacedWhenTheStepCompletes() throws Exception {
+        // When
+        writer.open(new ExecutionContext());
+        writer.write(Chunk.of(
+                new ReportingData(new BillingData(2023, 1, 101, "404-555-1001", 70.5f, 289, 77), 510.0),
+                new ReportingData(new BillingData(2023, 1, 103, "404-555-1003", 1.5f, 10, 20), 150.0)));
+        writer.close();
+        writer.afterStep(stepExecution(BatchStatus.COMPLETED));
+
+        // Then
+        Assertions.assertEquals(List.of(
+                "2023,1,100,404-555-1000,24.4,115,323,152.0",
+                "2023,1,101,404-555-1001,70.5,289,77,510.0",
+                "2023,1,103,404-555-1003,1.5,10,20,150.0"), Files.readAllLines(report));
+        Assertions.assertFalse(Files.exists(Path.of(report + ReportPatchItemWriter.PATCH_FILE_SUFFIX)));
+        Assertions.assertEquals(0, JdbcTestUtils.countRowsInTable(jdbcTemplate, "BILLING_DATA_DELTA"));
+    }
+
+    @Test
+    void testReportAndDeltaAreKeptWhenTheStepFails() throws Exception {
+        // When
+        writer.open(new ExecutionContext());
+        writer.write(Chunk.of(
+                new ReportingData(new BillingData(2023, 1, 101, "404-555-1001", 70.5f, 289, 77), 510.0)));
+        writer.close();
+        writer.afterStep(stepExecution(BatchStatus.FAILED));
+
+        // Then: the restart patches the same report with the same delta
+        Assertions.assertEquals(REPORT, Files.readAllLines(report));
+        Assertions.assertEquals(3, JdbcTestUtils.countRowsInTable(jdbcTemplate, "BILLING_DATA_DELTA"));
+    }
+
+    private static StepExecution stepExecution(BatchStatus status) {
+        StepExecution stepExecution = MetaDataInstanceFactory.createStepExecution();
+        stepExecution.setStatus(status);
+        return stepExecution;
+    }
+}
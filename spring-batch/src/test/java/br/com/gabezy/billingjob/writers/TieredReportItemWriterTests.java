@@ -0,0 +1,58 @@
+package br.com.gabezy.billingjob.writers;
+
+import br.com.gabezy.billingjob.domain.BillingData;
+import br.com.gabezy.billingjob.domain.ReportingData;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ItemWriter;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+class TieredReportItemWriterTests {
+
+    @Test
+    void testItemsAreWrittenToEveryTierTheyReach() throws Exception {
+        // Given
+        List<ReportingData> tier150 = new ArrayList<>();
+        List<ReportingData> tier500 = new ArrayList<>();
+        List<ReportingData> tier1000 = new ArrayList<>();
+        List<ItemWriter<ReportingData>> writers = List.of(chunk -> tier150.addAll(chunk.getItems()),
+                chunk -> tier500.addAll(chunk.getItems()), chunk -> tier1000.addAll(chunk.getItems()));
+        TieredReportItemWriter writer = new TieredReportItemWriter(new float[]{150, 500, 1000}, writers);
+        ReportingData under = reportingData(1, 149.99);
+        ReportingData low = reportingData(2, 150);
+        ReportingData middle = reportingData(3, 999.99);
+        ReportingData high = reportingData(4, 1000);
+
+        // When
+        writer.write(new Chunk<>(under, low, middle, high));
+
+        // Then
+        Assertions.assertEquals(List.of(low, middle, high), tier150);
+        Assertions.assertEquals(List.of(middle, high), tier500);
+        Assertions.assertEquals(List.of(high), tier1000);
+    }
+
+    @Test
+    void testTierFileKeepsTheExtensions() {
+        Assertions.assertEquals(Paths.get("staging", "billing-report-2023-01-500.csv.gz").toString(),
+                TieredReportItemWriter.tierFile(Paths.get("staging", "billing-report-2023-01.csv.gz").toString(), 500));
+        Assertions.assertEquals("report-1000.5", TieredReportItemWriter.tierFile("report", 1000.5f));
+    }
+
+    @Test
+    void testThresholdsMustBeAscending() {
+        List<ItemWriter<ReportingData>> writers = List.of(chunk -> {
+        }, chunk -> {
+        });
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> new TieredReportItemWriter(new float[]{500, 150}, writers));
+    }
+
+    private static ReportingData reportingData(int accountId, double billingTotal) {
+        return new ReportingData(new BillingData(2023, 1, accountId, "404-555-1000", 1f, 1, 1), billingTotal);
+    }
+}